@@ -0,0 +1,307 @@
+package io.takaro.minecraft;
+
+import org.bukkit.Location;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Handles the /takaro admin command.
+ *
+ * Subcommands:
+ * - stats: server tick timing, Takaro's own main-thread cost, connection,
+ *   reconnect and latency diagnostics
+ * - locations: list, add, remove and reload the locations served to listLocations,
+ *   and show the locations at your position
+ * - events: list the game events and enable or disable forwarding them
+ * - simulate: start or stop synthetic player activity for load profiling
+ */
+public class TakaroCommand implements CommandExecutor, TabCompleter {
+
+    private static final List<String> SUBCOMMANDS = List.of("stats", "locations", "events", "simulate");
+    private static final List<String> LOCATION_SUBCOMMANDS = List.of("list", "here", "add", "remove", "reload");
+    private static final List<String> EVENT_SUBCOMMANDS = List.of("list", "enable", "disable");
+    private static final List<String> SIMULATE_SUBCOMMANDS = List.of("start", "stop", "status");
+
+    private final TakaroPlugin plugin;
+
+    public TakaroCommand(TakaroPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 0) {
+            sender.sendMessage("§a[Takaro] §fUsage: /" + label + " <" + String.join("|", SUBCOMMANDS) + ">");
+            return true;
+        }
+
+        switch (args[0].toLowerCase()) {
+            case "stats":
+                sendStats(sender);
+                return true;
+            case "locations":
+                handleLocations(sender, label, args);
+                return true;
+            case "events":
+                handleEvents(sender, label, args);
+                return true;
+            case "simulate":
+                handleSimulate(sender, label, args);
+                return true;
+            default:
+                sender.sendMessage("§c[Takaro] Unknown subcommand: " + args[0]);
+                return true;
+        }
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+        if (args.length == 1) {
+            for (String subcommand : SUBCOMMANDS) {
+                if (subcommand.startsWith(args[0].toLowerCase())) {
+                    completions.add(subcommand);
+                }
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("locations")) {
+            for (String subcommand : LOCATION_SUBCOMMANDS) {
+                if (subcommand.startsWith(args[1].toLowerCase())) {
+                    completions.add(subcommand);
+                }
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("events")) {
+            for (String subcommand : EVENT_SUBCOMMANDS) {
+                if (subcommand.startsWith(args[1].toLowerCase())) {
+                    completions.add(subcommand);
+                }
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("simulate")) {
+            for (String subcommand : SIMULATE_SUBCOMMANDS) {
+                if (subcommand.startsWith(args[1].toLowerCase())) {
+                    completions.add(subcommand);
+                }
+            }
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("events") && plugin.getEventModules() != null) {
+            for (String name : plugin.getEventModules().getNames()) {
+                if (name.startsWith(args[2].toLowerCase())) {
+                    completions.add(name);
+                }
+            }
+        }
+        return completions;
+    }
+
+    private void handleLocations(CommandSender sender, String label, String[] args) {
+        TakaroLocationStore store = plugin.getLocationStore();
+        String action = args.length > 1 ? args[1].toLowerCase() : "list";
+
+        try {
+            switch (action) {
+                case "list":
+                    sender.sendMessage("§a[Takaro] §f" + store.getRegions().size() + " locations (plus world spawns)");
+                    for (TakaroLocationStore.Region region : store.getRegions()) {
+                        sender.sendMessage("§7 " + region.getCode() + ": §f" + region.getName() + " (" + region.getDimension() + ")");
+                    }
+                    break;
+                case "here":
+                    if (!(sender instanceof Player)) {
+                        sender.sendMessage("§c[Takaro] Only players can use /" + label + " locations here");
+                        return;
+                    }
+                    Location position = ((Player) sender).getLocation();
+                    List<TakaroLocationStore.Region> inside = store.getRegionsAt(
+                            plugin.getDimensionRegistry().getDimension(position.getWorld()),
+                            position.getX(), position.getY(), position.getZ());
+                    sender.sendMessage("§a[Takaro] §f" + (inside.isEmpty() ? "You are not in any location"
+                            : "You are in " + inside.size() + " location(s)"));
+                    for (TakaroLocationStore.Region region : inside) {
+                        sender.sendMessage("§7 " + region.getCode() + ": §f" + region.getName());
+                    }
+                    break;
+                case "add":
+                    if (!(sender instanceof Player) || args.length < 4) {
+                        sender.sendMessage("§c[Takaro] Usage (in game): /" + label + " locations add <code> <radius> [name]");
+                        return;
+                    }
+                    if (!TakaroLocationStore.isValidCode(args[2])) {
+                        sender.sendMessage("§c[Takaro] Invalid code: " + args[2] + " (use letters, digits, '_' and '-')");
+                        return;
+                    }
+                    double radius = Double.parseDouble(args[3]);
+                    if (!Double.isFinite(radius) || radius <= 0) {
+                        sender.sendMessage("§c[Takaro] Invalid radius: " + args[3] + " (must be greater than 0)");
+                        return;
+                    }
+                    Location location = ((Player) sender).getLocation();
+                    String name = args.length > 4 ? String.join(" ", Arrays.copyOfRange(args, 4, args.length)) : args[2];
+                    store.put(TakaroLocationStore.Region.circle(args[2], name,
+                            plugin.getDimensionRegistry().getDimension(location.getWorld()),
+                            location.getX(), location.getY(), location.getZ(), radius));
+                    sender.sendMessage("§a[Takaro] §fSaved location " + args[2]);
+                    break;
+                case "remove":
+                    if (args.length < 3) {
+                        sender.sendMessage("§c[Takaro] Usage: /" + label + " locations remove <code>");
+                        return;
+                    }
+                    sender.sendMessage(store.remove(args[2])
+                            ? "§a[Takaro] §fRemoved location " + args[2]
+                            : "§c[Takaro] Unknown location: " + args[2]);
+                    break;
+                case "reload":
+                    store.load();
+                    sender.sendMessage("§a[Takaro] §fReloaded " + store.getRegions().size() + " locations");
+                    break;
+                default:
+                    sender.sendMessage("§c[Takaro] Usage: /" + label + " locations <" + String.join("|", LOCATION_SUBCOMMANDS) + ">");
+            }
+        } catch (NumberFormatException e) {
+            sender.sendMessage("§c[Takaro] Invalid radius: " + args[3]);
+        } catch (IllegalArgumentException e) {
+            sender.sendMessage("§c[Takaro] " + e.getMessage());
+        } catch (IOException e) {
+            sender.sendMessage("§c[Takaro] Failed to save locations: " + e.getMessage());
+        }
+    }
+
+    private void handleEvents(CommandSender sender, String label, String[] args) {
+        TakaroEventModules modules = plugin.getEventModules();
+        String action = args.length > 1 ? args[1].toLowerCase() : "list";
+
+        switch (action) {
+            case "list":
+                List<String> registered = modules.getRegistered();
+                sender.sendMessage("§a[Takaro] §f" + registered.size() + " of " + modules.getNames().size() + " game events forwarded");
+                for (String name : modules.getNames()) {
+                    sender.sendMessage("§7 " + name + ": " + (registered.contains(name) ? "§aenabled" : "§cdisabled"));
+                }
+                break;
+            case "enable":
+            case "disable":
+                if (args.length < 3) {
+                    sender.sendMessage("§c[Takaro] Usage: /" + label + " events " + action + " <event>");
+                    return;
+                }
+                boolean enabled = action.equals("enable");
+                sender.sendMessage(modules.setEnabled(args[2].toLowerCase(), enabled)
+                        ? "§a[Takaro] §f" + (enabled ? "Enabled " : "Disabled ") + args[2]
+                        : "§c[Takaro] Unknown event: " + args[2]);
+                break;
+            default:
+                sender.sendMessage("§c[Takaro] Usage: /" + label + " events <" + String.join("|", EVENT_SUBCOMMANDS) + ">");
+        }
+    }
+
+    private void handleSimulate(CommandSender sender, String label, String[] args) {
+        TakaroLoadSimulator simulator = plugin.getLoadSimulator();
+        String action = args.length > 1 ? args[1].toLowerCase() : "status";
+
+        switch (action) {
+            case "start":
+                if (!simulator.isEnabled()) {
+                    sender.sendMessage("§c[Takaro] Simulation is disabled, set takaro.simulation.enabled in config.yml");
+                    return;
+                }
+                long duration;
+                try {
+                    duration = args.length > 2 ? Long.parseLong(args[2]) : 60;
+                } catch (NumberFormatException e) {
+                    sender.sendMessage("§c[Takaro] Invalid duration: " + args[2]);
+                    return;
+                }
+                sender.sendMessage(simulator.start(duration)
+                        ? "§a[Takaro] §fSimulation started" + (duration > 0 ? " for " + duration + "s" : "")
+                        : "§c[Takaro] A simulation is already running");
+                break;
+            case "stop":
+                if (!simulator.isRunning()) {
+                    sender.sendMessage("§c[Takaro] No simulation is running");
+                    return;
+                }
+                simulator.stop();
+                sender.sendMessage("§a[Takaro] §fSimulation stopped: " + simulator.getSummary());
+                break;
+            case "status":
+                sender.sendMessage("§a[Takaro] §f" + (simulator.isRunning() ? "Simulation running: " + simulator.getSummary()
+                        : "No simulation running"));
+                break;
+            default:
+                sender.sendMessage("§c[Takaro] Usage: /" + label + " simulate <start [seconds]|stop|status>");
+        }
+    }
+
+    private void sendStats(CommandSender sender) {
+        sender.sendMessage("§a[Takaro] §fPlugin statistics");
+
+        TakaroTickSampler sampler = plugin.getTickSampler();
+        if (sampler != null) {
+            sender.sendMessage(String.format("§7 Server: §f%.1f TPS, MSPT p50=%.1fms p95=%.1fms max=%.1fms",
+                    sampler.getTps(), sampler.getMspt(50), sampler.getMspt(95), sampler.getMaxMspt()));
+        }
+
+        TakaroLoadGovernor governor = plugin.getLoadGovernor();
+        if (governor != null) {
+            sender.sendMessage("§7 Load mode: §f" + governor.getMode().name().toLowerCase()
+                    + (sampler != null ? String.format(" (recent MSPT %.1fms)", sampler.getRecentMspt()) : ""));
+        }
+
+        TakaroProfiler profiler = plugin.getProfiler();
+        if (profiler != null) {
+            TakaroSampleWindow tickCost = profiler.getTickCost();
+            sender.sendMessage(String.format("§7 Takaro main thread: §f%.3fms/tick avg, p95=%.3fms, max=%.3fms, total=%.1fms",
+                    Math.max(0, tickCost.mean()) / 1e6, Math.max(0, tickCost.percentile(95)) / 1e6,
+                    Math.max(0, tickCost.max()) / 1e6, profiler.getTotalNanos() / 1e6));
+            for (TakaroProfiler.Section section : profiler.getTopSections(5)) {
+                sender.sendMessage(String.format("§7   %s: §f%d runs, total=%.2fms, avg=%.3fms, max=%.2fms",
+                        section.getName(), section.getCount(), section.getTotalNanos() / 1e6,
+                        section.getTotalNanos() / 1e6 / Math.max(1, section.getCount()), section.getMaxNanos() / 1e6)
+                        + (profiler.isTrackingAllocations() ? String.format(", alloc avg=%.1fKB max=%.1fKB",
+                        section.getTotalBytes() / 1024.0 / Math.max(1, section.getCount()), section.getMaxBytes() / 1024.0) : "")
+                        + (section.getOverBudgetCount() > 0 ? ", over budget " + section.getOverBudgetCount() + "x" : ""));
+            }
+        }
+
+        TakaroWebSocketClient client = plugin.getWebSocketClient();
+        if (client == null) {
+            sender.sendMessage("§7 Connection: §cnot initialized");
+            return;
+        }
+
+        sender.sendMessage("§7 Connection: §f" + describeState(client));
+        sendTransitions(sender, client);
+        sender.sendMessage("§7 Outbound: §f" + client.getOutboundStats());
+        sender.sendMessage("§7 Reconnect: §f" + client.getReconnectState());
+        sender.sendMessage("§7 Heartbeat RTT: §f" + client.getRttStats());
+
+        TakaroWebSocketClient telemetry = plugin.getTelemetryClient();
+        if (telemetry != null) {
+            sender.sendMessage("§7 Telemetry connection: §f" + (telemetry.isRejected() ? "refused by Takaro, using control connection"
+                    : describeState(telemetry)));
+            sendTransitions(sender, telemetry);
+            sender.sendMessage("§7 Telemetry outbound: §f" + telemetry.getOutboundStats());
+            sender.sendMessage("§7 Telemetry reconnect: §f" + telemetry.getReconnectState());
+            sender.sendMessage("§7 Telemetry RTT: §f" + telemetry.getRttStats());
+        }
+    }
+
+    private String describeState(TakaroWebSocketClient client) {
+        TakaroConnectionState state = client.getConnectionState();
+        return state.get().name().toLowerCase() + " (" + state.getTransitionCount() + " transitions)";
+    }
+
+    private void sendTransitions(CommandSender sender, TakaroWebSocketClient client) {
+        long now = System.currentTimeMillis();
+        for (TakaroConnectionState.Transition transition : client.getConnectionState().getHistory(3)) {
+            sender.sendMessage(String.format("§7   %ds ago: §f%s -> %s (%s)", (now - transition.getTimestamp()) / 1000,
+                    transition.getFrom().name().toLowerCase(), transition.getTo().name().toLowerCase(), transition.getReason()));
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package io.takaro.minecraft;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import org.apache.logging.log4j.core.LogEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+/**
+ * Captures the output of a console command dispatched on behalf of Takaro.
+ *
+ * Bukkit and plugin commands reply through the sender, so the command is run
+ * with a proxy of the console sender that records every message (and still
+ * echoes it to the real console). Vanilla commands always reply to the real
+ * console, which only logs the text, so while the command runs on the calling
+ * thread, log lines from that thread are recorded as well via
+ * {@link #onLogEvent(LogEvent)}.
+ *
+ * Output is kept in a bounded buffer. In streaming mode, text that arrives
+ * after the command returned can be drained in chunks.
+ */
+public class TakaroCommandCapture {
+
+    private static final ThreadLocal<TakaroCommandCapture> ACTIVE = new ThreadLocal<>();
+    private static final String TRUNCATED_MARKER = "\n... [output truncated]";
+
+    private final int maxChars;
+    private final StringBuilder output = new StringBuilder();
+    private final ConsoleCommandSender sender;
+    private int drainedTo = 0;
+    private boolean truncated = false;
+    private volatile boolean closed = false;
+    private volatile boolean echoing = false;
+
+    /**
+     * @param maxChars Maximum number of characters kept, further output is dropped
+     */
+    public TakaroCommandCapture(int maxChars) {
+        this.maxChars = Math.max(0, maxChars);
+        this.sender = createSender(Bukkit.getConsoleSender());
+    }
+
+    /**
+     * Records a log line if a capture is active on the logging thread.
+     * Called by the log filter for every log event, so it must stay cheap.
+     *
+     * @param event The log event
+     */
+    public static void onLogEvent(LogEvent event) {
+        TakaroCommandCapture capture = ACTIVE.get();
+        if (capture == null || capture.echoing) {
+            return;
+        }
+        capture.append(event.getMessage().getFormattedMessage());
+    }
+
+    /**
+     * Dispatches a command with the capturing sender. Must be called on the main thread.
+     *
+     * @param command The command line without leading slash
+     * @return Whether the command was found and executed
+     */
+    public boolean dispatch(String command) {
+        ACTIVE.set(this);
+        try {
+            return Bukkit.dispatchCommand(sender, command);
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+
+    /**
+     * @return All output captured so far
+     */
+    public synchronized String getOutput() {
+        return truncated ? output + TRUNCATED_MARKER : output.toString();
+    }
+
+    /**
+     * Returns output captured since the previous drain.
+     *
+     * @return New output, or an empty string if nothing new arrived
+     */
+    public synchronized String drainNew() {
+        String chunk = output.substring(drainedTo);
+        drainedTo = output.length();
+        return chunk;
+    }
+
+    /**
+     * Stops recording. Messages sent to the sender afterwards only reach the real console.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    private synchronized void append(String text) {
+        if (closed || text == null || truncated) {
+            return;
+        }
+
+        String line = ChatColor.stripColor(text);
+        int needed = line.length() + (output.length() > 0 ? 1 : 0);
+        if (output.length() + needed > maxChars) {
+            truncated = true;
+            return;
+        }
+
+        if (output.length() > 0) {
+            output.append('\n');
+        }
+        output.append(line);
+    }
+
+    private void appendEchoed(String text, Runnable echo) {
+        append(text);
+        echoing = true;
+        try {
+            echo.run();
+        } finally {
+            echoing = false;
+        }
+    }
+
+    private ConsoleCommandSender createSender(ConsoleCommandSender console) {
+        CommandSender.Spigot spigot = new CommandSender.Spigot() {
+            @Override
+            public void sendMessage(BaseComponent component) {
+                appendEchoed(component.toPlainText(), () -> console.spigot().sendMessage(component));
+            }
+
+            @Override
+            public void sendMessage(BaseComponent... components) {
+                appendEchoed(toPlainText(components), () -> console.spigot().sendMessage(components));
+            }
+
+            @Override
+            public void sendMessage(UUID senderId, BaseComponent component) {
+                appendEchoed(component.toPlainText(), () -> console.spigot().sendMessage(senderId, component));
+            }
+
+            @Override
+            public void sendMessage(UUID senderId, BaseComponent... components) {
+                appendEchoed(toPlainText(components), () -> console.spigot().sendMessage(senderId, components));
+            }
+        };
+
+        return (ConsoleCommandSender) Proxy.newProxyInstance(
+            ConsoleCommandSender.class.getClassLoader(),
+            new Class<?>[] { ConsoleCommandSender.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "sendMessage":
+                    case "sendRawMessage":
+                        captureMessageArgs(args);
+                        break;
+                    case "spigot":
+                        return spigot;
+                    default:
+                        break;
+                }
+
+                try {
+                    echoing = "sendMessage".equals(method.getName()) || "sendRawMessage".equals(method.getName());
+                    return method.invoke(console, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                } finally {
+                    echoing = false;
+                }
+            });
+    }
+
+    private void captureMessageArgs(Object[] args) {
+        if (args == null) {
+            return;
+        }
+        // Signatures are (String), (String[]), (UUID, String) and (UUID, String[])
+        Object message = args[args.length - 1];
+        if (message instanceof String) {
+            append((String) message);
+        } else if (message instanceof String[]) {
+            for (String line : (String[]) message) {
+                append(line);
+            }
+        }
+    }
+
+    private static String toPlainText(BaseComponent... components) {
+        StringBuilder builder = new StringBuilder();
+        for (BaseComponent component : components) {
+            builder.append(component.toPlainText());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package io.takaro.minecraft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lifecycle of one Takaro connection.
+ *
+ * The state is written by the WebSocket and connection timer threads and read
+ * from the main thread, the chat thread and the log forwarder, so it is kept in
+ * a single atomic reference instead of separate flags. Readers see either the
+ * old or the new state, never a mix such as "open but not yet authenticated".
+ *
+ * CONNECTING -> IDENTIFYING -> READY, and from any of them to BACKOFF when the
+ * connection drops and a reconnect is scheduled. CLOSED is final: the client
+ * was shut down, gave up reconnecting or was refused by Takaro.
+ *
+ * Listeners run on the thread that made the transition and must not block.
+ * The last transitions are kept for /takaro stats.
+ */
+public class TakaroConnectionState {
+
+    public enum State {
+        CONNECTING,
+        IDENTIFYING,
+        READY,
+        BACKOFF,
+        CLOSED
+    }
+
+    /**
+     * Called after each transition.
+     */
+    public interface Listener {
+        void onTransition(State from, State to, String reason);
+    }
+
+    /**
+     * One recorded transition.
+     */
+    public static final class Transition {
+        private final State from;
+        private final State to;
+        private final String reason;
+        private final long timestamp;
+
+        private Transition(State from, State to, String reason, long timestamp) {
+            this.from = from;
+            this.to = to;
+            this.reason = reason;
+            this.timestamp = timestamp;
+        }
+
+        public State getFrom() {
+            return from;
+        }
+
+        public State getTo() {
+            return to;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return Wall-clock time of the transition in milliseconds
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    private static final int HISTORY_SIZE = 32;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CONNECTING);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicReferenceArray<Transition> history = new AtomicReferenceArray<>(HISTORY_SIZE);
+    private final AtomicLong transitions = new AtomicLong();
+
+    /**
+     * @return The current state
+     */
+    public State get() {
+        return state.get();
+    }
+
+    /**
+     * @return Whether the connection is authenticated and can send
+     */
+    public boolean isReady() {
+        return state.get() == State.READY;
+    }
+
+    /**
+     * @return Whether the connection has stopped for good
+     */
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    /**
+     * Moves to a new state unless the connection is already CLOSED.
+     *
+     * @param to The new state
+     * @param reason Why, recorded with the transition
+     * @return false if the state was CLOSED or already the new state
+     */
+    public boolean moveTo(State to, String reason) {
+        while (true) {
+            State from = state.get();
+            if (from == State.CLOSED || from == to) {
+                return false;
+            }
+            if (state.compareAndSet(from, to)) {
+                record(from, to, reason);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves to a new state only if the current state is the expected one, so a
+     * late event from an old connection can't overwrite a newer state.
+     *
+     * @param from The expected current state
+     * @param to The new state
+     * @param reason Why, recorded with the transition
+     * @return false if the current state was not the expected one
+     */
+    public boolean moveTo(State from, State to, String reason) {
+        if (from == to || !state.compareAndSet(from, to)) {
+            return false;
+        }
+        record(from, to, reason);
+        return true;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return Transitions since startup
+     */
+    public long getTransitionCount() {
+        return transitions.get();
+    }
+
+    /**
+     * @param limit Maximum number of transitions to return
+     * @return The most recent transitions, newest first
+     */
+    public List<Transition> getHistory(int limit) {
+        long count = transitions.get();
+        int size = (int) Math.min(Math.min(count, HISTORY_SIZE), Math.max(0, limit));
+        List<Transition> recent = new ArrayList<>(size);
+        for (long i = count - 1; i >= count - size; i--) {
+            Transition transition = history.get((int) (i % HISTORY_SIZE));
+            if (transition != null) {
+                recent.add(transition);
+            }
+        }
+        return recent;
+    }
+
+    private void record(State from, State to, String reason) {
+        long index = transitions.getAndIncrement();
+        history.set((int) (index % HISTORY_SIZE), new Transition(from, to, reason, System.currentTimeMillis()));
+
+        for (Listener listener : listeners) {
+            listener.onTransition(from, to, reason);
+        }
+    }
+}
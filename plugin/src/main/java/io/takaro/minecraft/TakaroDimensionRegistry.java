@@ -0,0 +1,173 @@
+package io.takaro.minecraft;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Maps Minecraft worlds to Takaro dimensions and back.
+ *
+ * The mappings are computed once from the loaded worlds and rebuilt when a
+ * world is loaded or unloaded, so lookups during events and requests are
+ * plain map reads. Worlds map to a dimension by their environment (normal,
+ * nether, the end), which also works for Multiverse worlds, unless
+ * takaro.dimensions.worlds assigns them a dimension explicitly. Teleports
+ * into a dimension go to takaro.dimensions.targets if configured, otherwise
+ * to the main world of that dimension.
+ */
+public class TakaroDimensionRegistry implements Listener {
+
+    public static final String OVERWORLD = "overworld";
+    public static final String NETHER = "nether";
+    public static final String END = "end";
+
+    private final TakaroPlugin plugin;
+    private final Logger logger;
+
+    // Replaced as a whole on rebuild, so readers on other threads always see a complete mapping
+    private volatile Map<String, String> worldToDimension = Map.of();
+    private volatile Map<String, World> dimensionToWorld = Map.of();
+
+    public TakaroDimensionRegistry(TakaroPlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        rebuild();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        // The unloading world is still listed during the event, so skip it explicitly
+        rebuild(event.getWorld());
+    }
+
+    /**
+     * Recomputes the mappings from the currently loaded worlds and configuration.
+     */
+    public void rebuild() {
+        rebuild(null);
+    }
+
+    private void rebuild(World excluded) {
+        Map<String, String> configuredWorlds = readSection("takaro.dimensions.worlds");
+        Map<String, String> configuredTargets = readSection("takaro.dimensions.targets");
+
+        List<World> worlds = Bukkit.getWorlds();
+        String mainWorldName = worlds.isEmpty() ? "world" : worlds.get(0).getName();
+
+        Map<String, String> worldMap = new HashMap<>();
+        Map<String, World> dimensionMap = new HashMap<>();
+
+        for (World world : worlds) {
+            if (world == excluded) {
+                continue;
+            }
+
+            String dimension = configuredWorlds.get(world.getName());
+            dimension = dimension != null
+                    ? dimension.toLowerCase(Locale.ROOT)
+                    : dimensionForEnvironment(world.getEnvironment());
+            worldMap.put(world.getName(), dimension);
+
+            // Prefer the vanilla naming (world, world_nether, world_the_end), else the first loaded world
+            World current = dimensionMap.get(dimension);
+            if (current == null || isDefaultWorldFor(world.getName(), mainWorldName, dimension)) {
+                dimensionMap.put(dimension, world);
+            }
+        }
+
+        for (Map.Entry<String, String> target : configuredTargets.entrySet()) {
+            World world = Bukkit.getWorld(target.getValue());
+            if (world != null && world != excluded) {
+                // Dimension names are matched case-insensitively
+                dimensionMap.put(target.getKey().toLowerCase(Locale.ROOT), world);
+            } else {
+                logger.warning("Configured target world '" + target.getValue() + "' for dimension '"
+                        + target.getKey() + "' is not loaded");
+            }
+        }
+
+        worldToDimension = Map.copyOf(worldMap);
+        dimensionToWorld = Map.copyOf(dimensionMap);
+
+        if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
+            logger.info("Dimension mappings: worlds=" + worldToDimension + ", targets=" + dimensionMap.keySet());
+        }
+    }
+
+    /**
+     * Maps a world to its Takaro dimension name.
+     *
+     * @param world The Minecraft world
+     * @return The corresponding Takaro dimension name
+     */
+    public String getDimension(World world) {
+        String dimension = worldToDimension.get(world.getName());
+        return dimension != null ? dimension : dimensionForEnvironment(world.getEnvironment());
+    }
+
+    /**
+     * Maps a Takaro dimension name to the world players are teleported to.
+     *
+     * @param dimension The Takaro dimension name
+     * @return The corresponding Minecraft world, or null if not found
+     */
+    public World getWorld(String dimension) {
+        if (dimension == null) {
+            return null;
+        }
+        return dimensionToWorld.get(dimension.toLowerCase(Locale.ROOT));
+    }
+
+    private static String dimensionForEnvironment(World.Environment environment) {
+        switch (environment) {
+            case NETHER:
+                return NETHER;
+            case THE_END:
+                return END;
+            default:
+                return OVERWORLD;
+        }
+    }
+
+    private static boolean isDefaultWorldFor(String worldName, String mainWorldName, String dimension) {
+        switch (dimension) {
+            case OVERWORLD:
+                return worldName.equals(mainWorldName);
+            case NETHER:
+                return worldName.equals(mainWorldName + "_nether");
+            case END:
+                return worldName.equals(mainWorldName + "_the_end");
+            default:
+                return false;
+        }
+    }
+
+    private Map<String, String> readSection(String path) {
+        Map<String, String> values = new HashMap<>();
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection(path);
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                String value = section.getString(key);
+                if (value != null && !value.isEmpty()) {
+                    values.put(key, value);
+                }
+            }
+        }
+        return values;
+    }
+}
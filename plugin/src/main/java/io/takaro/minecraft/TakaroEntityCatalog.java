@@ -0,0 +1,222 @@
+package io.takaro.minecraft;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Enemy;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntitySpawnEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Logger;
+
+/**
+ * Serves listEntities from a catalog of living entity types built once at startup.
+ *
+ * The hostile/friendly classification is resolved per type when the catalog
+ * is built, and the serialized list is cached, so a request never walks the
+ * worlds. When the optional census is enabled, live counts per world and type
+ * are kept up to date from spawn, death and entity load/unload events and
+ * added to each entry's metadata.
+ *
+ * Entities that despawn or are removed by plugins don't fire any of those
+ * events, so a slow reconcile recounts one world per run to correct drift.
+ */
+public class TakaroEntityCatalog implements Listener {
+
+    private static final class EntityInfo {
+        private final EntityType type;
+        private final String name;
+        private final boolean hostile;
+
+        private EntityInfo(EntityType type, String name, boolean hostile) {
+            this.type = type;
+            this.name = name;
+            this.hostile = hostile;
+        }
+    }
+
+    private final TakaroPlugin plugin;
+    private final Logger logger;
+    private final Map<EntityType, EntityInfo> catalog = new EnumMap<>(EntityType.class);
+    private final JsonArray cachedEntities;
+    private final boolean censusEnabled;
+    private final Map<String, AtomicIntegerArray> census = new ConcurrentHashMap<>();
+    private BukkitTask reconcileTask;
+    private int reconcileIndex = 0;
+
+    public TakaroEntityCatalog(TakaroPlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.censusEnabled = plugin.getConfig().getBoolean("takaro.entities.census.enabled", false);
+
+        for (EntityType type : EntityType.values()) {
+            Class<? extends Entity> entityClass = type.getEntityClass();
+            if (type == EntityType.PLAYER || entityClass == null || !type.isAlive()) {
+                continue;
+            }
+            catalog.put(type, new EntityInfo(type, formatName(type), Enemy.class.isAssignableFrom(entityClass)));
+        }
+
+        cachedEntities = new JsonArray();
+        for (EntityInfo info : catalog.values()) {
+            cachedEntities.add(toJson(info));
+        }
+    }
+
+    /**
+     * Registers the census listeners and seeds the counts. Must be called on the main thread.
+     */
+    public void start() {
+        if (!censusEnabled) {
+            return;
+        }
+
+        for (World world : Bukkit.getWorlds()) {
+            recount(world);
+        }
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+
+        long interval = plugin.getConfig().getLong("takaro.entities.census.reconcile_interval", 600) * 20L;
+        if (interval > 0) {
+            reconcileTask = plugin.getServer().getScheduler().runTaskTimer(plugin,
+                    plugin.getProfiler().wrap("entityCensus", this::reconcileNextWorld), interval, interval);
+        }
+
+        logger.info("Entity census enabled for " + catalog.size() + " entity types");
+    }
+
+    public void stop() {
+        if (reconcileTask != null) {
+            reconcileTask.cancel();
+            reconcileTask = null;
+        }
+    }
+
+    /**
+     * Builds the listEntities payload. Safe to call from any thread.
+     *
+     * @return The entity list, with live counts in metadata when the census is enabled
+     */
+    public JsonArray getEntities() {
+        if (!censusEnabled) {
+            return cachedEntities;
+        }
+
+        JsonArray entities = new JsonArray();
+        for (EntityInfo info : catalog.values()) {
+            JsonObject entity = toJson(info);
+
+            JsonObject counts = new JsonObject();
+            int total = 0;
+            for (Map.Entry<String, AtomicIntegerArray> world : census.entrySet()) {
+                int count = Math.max(0, world.getValue().get(info.type.ordinal()));
+                if (count > 0) {
+                    counts.addProperty(world.getKey(), count);
+                    total += count;
+                }
+            }
+
+            JsonObject metadata = new JsonObject();
+            metadata.addProperty("count", total);
+            metadata.add("worlds", counts);
+            entity.add("metadata", metadata);
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntitySpawn(EntitySpawnEvent event) {
+        adjust(event.getEntity(), 1);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityDeath(EntityDeathEvent event) {
+        adjust(event.getEntity(), -1);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            adjust(entity, 1);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            // Dead entities were already counted out by the death event
+            if (!entity.isDead()) {
+                adjust(entity, -1);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        census.remove(event.getWorld().getName());
+    }
+
+    private void adjust(Entity entity, int delta) {
+        if (entity instanceof Player || !catalog.containsKey(entity.getType())) {
+            return;
+        }
+        countsFor(entity.getWorld().getName()).addAndGet(entity.getType().ordinal(), delta);
+    }
+
+    private AtomicIntegerArray countsFor(String worldName) {
+        return census.computeIfAbsent(worldName, name -> new AtomicIntegerArray(EntityType.values().length));
+    }
+
+    private void reconcileNextWorld() {
+        List<World> worlds = new ArrayList<>(Bukkit.getWorlds());
+        if (worlds.isEmpty()) {
+            return;
+        }
+        reconcileIndex = (reconcileIndex + 1) % worlds.size();
+        recount(worlds.get(reconcileIndex));
+    }
+
+    private void recount(World world) {
+        AtomicIntegerArray counts = new AtomicIntegerArray(EntityType.values().length);
+        for (LivingEntity entity : world.getLivingEntities()) {
+            if (!(entity instanceof Player) && catalog.containsKey(entity.getType())) {
+                counts.incrementAndGet(entity.getType().ordinal());
+            }
+        }
+        census.put(world.getName(), counts);
+    }
+
+    private static JsonObject toJson(EntityInfo info) {
+        JsonObject entity = new JsonObject();
+        entity.addProperty("code", info.type.name());
+        entity.addProperty("name", info.name);
+        entity.addProperty("description", "A " + (info.hostile ? "hostile " : "friendly ") + info.name.toLowerCase());
+        entity.addProperty("type", info.hostile ? "hostile" : "friendly");
+        return entity;
+    }
+
+    private static String formatName(EntityType type) {
+        // Format name from ENUM_CASE to "Enum case", same as listItems
+        String name = type.name().toLowerCase().replace("_", " ");
+        return name.substring(0, 1).toUpperCase() + name.substring(1);
+    }
+}
@@ -0,0 +1,125 @@
+package io.takaro.minecraft;
+
+import com.google.gson.JsonObject;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.util.logging.Logger;
+
+/**
+ * One game event type forwarded to Takaro, registered with the server only while enabled.
+ *
+ * Modules are registered through PluginManager.registerEvent with a plain
+ * executor instead of annotated handlers, so a disabled module has no
+ * handler on the event bus at all. The executor times main-thread handlers
+ * with the profiler under the module name.
+ *
+ * @param <T> The Bukkit event handled by the module
+ */
+public abstract class TakaroEventModule<T extends Event> implements Listener {
+
+    protected final TakaroPlugin plugin;
+    protected final Logger logger;
+    private final String name;
+    private final Class<T> eventClass;
+    private final EventPriority priority;
+    private final boolean defaultEnabled;
+
+    /**
+     * @param plugin The Takaro plugin instance
+     * @param name The Takaro event type, also the config key under takaro.events
+     * @param eventClass The Bukkit event class
+     * @param priority The priority to register at
+     * @param defaultEnabled Whether the module is enabled when the config doesn't mention it
+     */
+    protected TakaroEventModule(TakaroPlugin plugin, String name, Class<T> eventClass,
+                                EventPriority priority, boolean defaultEnabled) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.name = name;
+        this.eventClass = eventClass;
+        this.priority = priority;
+        this.defaultEnabled = defaultEnabled;
+    }
+
+    /**
+     * Handles one event. Called only for events of the module's class.
+     *
+     * @param event The event
+     */
+    protected abstract void handle(T event);
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getEventClass() {
+        return eventClass;
+    }
+
+    public EventPriority getPriority() {
+        return priority;
+    }
+
+    public boolean isDefaultEnabled() {
+        return defaultEnabled;
+    }
+
+    /**
+     * @return Whether events cancelled by other plugins are skipped
+     */
+    protected boolean ignoreCancelled() {
+        return false;
+    }
+
+    protected void sendGameEvent(String eventType, JsonObject data) {
+        TakaroWebSocketClient client = plugin.getEventClient();
+        if (client == null) {
+            logger.warning("Cannot send " + eventType + " event - WebSocket client is null");
+            return;
+        }
+
+        if (!client.isAuthenticated()) {
+            logger.warning("Cannot send " + eventType + " event - not authenticated");
+            return;
+        }
+
+        logger.info("Sending " + eventType + " event to Takaro");
+        client.sendGameEvent(eventType, data);
+        logger.info("Successfully sent " + eventType + " event to Takaro");
+    }
+
+    protected JsonObject createPlayerData(Player player) {
+        TakaroWebSocketClient client = plugin.getWebSocketClient();
+        if (client != null) {
+            return client.createPlayerData(player);
+        }
+        // Fallback if client is not available
+        JsonObject playerData = new JsonObject();
+        playerData.addProperty("gameId", player.getUniqueId().toString());
+        playerData.addProperty("name", player.getName());
+        playerData.addProperty("platformId", "minecraft:" + player.getUniqueId().toString());
+        return playerData;
+    }
+
+    protected JsonObject createPlayerDataWithDetails(Player player) {
+        TakaroWebSocketClient client = plugin.getWebSocketClient();
+        if (client != null) {
+            return client.createPlayerDataWithDetails(player);
+        }
+        // Fallback if client is not available
+        return createPlayerData(player);
+    }
+
+    protected JsonObject createPosition(Location location) {
+        JsonObject position = new JsonObject();
+        position.addProperty("x", location.getX());
+        position.addProperty("y", location.getY());
+        position.addProperty("z", location.getZ());
+        position.addProperty("dimension", plugin.getDimensionRegistry().getDimension(location.getWorld()));
+        return position;
+    }
+}
@@ -0,0 +1,427 @@
+package io.takaro.minecraft;
+
+import com.google.gson.JsonObject;
+import org.bukkit.World;
+import org.bukkit.advancement.Advancement;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerAdvancementDoneEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.plugin.PluginManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Registry of the game events forwarded to Takaro.
+ *
+ * Each event type is a {@link TakaroEventModule} that is registered with the
+ * server only while it is enabled under takaro.events in the config, so
+ * disabled events add no handler to the event bus. Modules can be enabled and
+ * disabled at runtime with /takaro events. While the server lags, the load
+ * governor suspends the optional modules, the ones disabled by default,
+ * without changing the config.
+ */
+public class TakaroEventModules {
+
+    private final TakaroPlugin plugin;
+    private final Logger logger;
+    private final Map<String, TakaroEventModule<?>> modules = new LinkedHashMap<>();
+    private final Set<String> registered = new HashSet<>();
+    private boolean optionalSuspended = false;
+
+    public TakaroEventModules(TakaroPlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+
+        add(new PlayerConnected(plugin));
+        add(new PlayerDisconnected(plugin));
+        add(new ChatMessage(plugin));
+        add(new PlayerDeath(plugin));
+        add(new EntityKilled(plugin));
+        add(new PlayerAdvancement(plugin));
+        add(new PlayerCommand(plugin));
+        add(new PlayerWorldChange(plugin));
+        add(new PlayerRespawn(plugin));
+    }
+
+    private void add(TakaroEventModule<?> module) {
+        modules.put(module.getName(), module);
+    }
+
+    /**
+     * Registers the modules enabled in config and unregisters the others.
+     * Optional modules stay unregistered while they are suspended.
+     * Must be called on the main thread.
+     */
+    public synchronized void apply() {
+        for (TakaroEventModule<?> module : modules.values()) {
+            boolean enabled = plugin.getConfig().getBoolean("takaro.events." + module.getName(), module.isDefaultEnabled())
+                    && !(optionalSuspended && !module.isDefaultEnabled());
+            boolean active = registered.contains(module.getName());
+
+            if (enabled && !active) {
+                register(module);
+                registered.add(module.getName());
+            } else if (!enabled && active) {
+                HandlerList.unregisterAll(module);
+                registered.remove(module.getName());
+            }
+        }
+        logger.info("Forwarding game events: " + String.join(", ", getRegistered()));
+    }
+
+    /**
+     * Enables or disables a module, saves the choice to config and applies it.
+     * Must be called on the main thread.
+     *
+     * @param name The event type
+     * @param enabled Whether the event should be forwarded
+     * @return false if there is no module with that name
+     */
+    public synchronized boolean setEnabled(String name, boolean enabled) {
+        if (!modules.containsKey(name)) {
+            return false;
+        }
+        plugin.getConfig().set("takaro.events." + name, enabled);
+        plugin.saveConfig();
+        apply();
+        return true;
+    }
+
+    /**
+     * Suspends or resumes the optional modules, the ones disabled by default, without
+     * changing the config. Must be called on the main thread.
+     *
+     * @param suspended Whether the optional modules should stop forwarding
+     */
+    public synchronized void setOptionalSuspended(boolean suspended) {
+        if (suspended != optionalSuspended) {
+            optionalSuspended = suspended;
+            apply();
+        }
+    }
+
+    /**
+     * @return The names of all modules
+     */
+    public List<String> getNames() {
+        return new ArrayList<>(modules.keySet());
+    }
+
+    /**
+     * @return The names of the modules currently registered with the server
+     */
+    public synchronized List<String> getRegistered() {
+        List<String> names = new ArrayList<>();
+        for (String name : modules.keySet()) {
+            if (registered.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Passes an event to the registered modules that handle it, the same way the
+     * server would, without firing it through the server. Other plugins never see
+     * the event, which is how the load simulator feeds in activity of players that
+     * aren't really online. Synchronous events must be dispatched on the main thread.
+     *
+     * @param event The event
+     * @return Whether a registered module handled the event
+     */
+    public synchronized boolean dispatch(Event event) {
+        boolean handled = false;
+        for (TakaroEventModule<?> module : modules.values()) {
+            if (registered.contains(module.getName()) && module.getEventClass().isInstance(event)) {
+                execute(module, event);
+                handled = true;
+            }
+        }
+        return handled;
+    }
+
+    private <T extends Event> void register(TakaroEventModule<T> module) {
+        PluginManager pluginManager = plugin.getServer().getPluginManager();
+        Class<T> eventClass = module.getEventClass();
+
+        pluginManager.registerEvent(eventClass, module, module.getPriority(), (listener, event) -> {
+            // Handlers registered for a class also receive its subclasses
+            if (eventClass.isInstance(event)) {
+                execute(module, event);
+            }
+        }, plugin, module.ignoreCancelled());
+    }
+
+    private <T extends Event> void execute(TakaroEventModule<T> module, Event event) {
+        T typed = module.getEventClass().cast(event);
+        if (event.isAsynchronous()) {
+            module.handle(typed);
+            return;
+        }
+
+        long start = plugin.getProfiler().begin();
+        try {
+            module.handle(typed);
+        } finally {
+            plugin.getProfiler().end(module.getName(), start);
+        }
+    }
+
+    static final class PlayerConnected extends TakaroEventModule<PlayerJoinEvent> {
+        PlayerConnected(TakaroPlugin plugin) {
+            super(plugin, "player-connected", PlayerJoinEvent.class, EventPriority.NORMAL, true);
+        }
+
+        @Override
+        protected void handle(PlayerJoinEvent event) {
+            Player player = event.getPlayer();
+            logger.info("Player join event triggered: " + player.getName());
+
+            JsonObject eventData = new JsonObject();
+            eventData.add("player", createPlayerDataWithDetails(player));
+
+            sendGameEvent("player-connected", eventData);
+            logger.info("Player connected event processed: " + player.getName());
+        }
+    }
+
+    static final class PlayerDisconnected extends TakaroEventModule<PlayerQuitEvent> {
+        PlayerDisconnected(TakaroPlugin plugin) {
+            super(plugin, "player-disconnected", PlayerQuitEvent.class, EventPriority.NORMAL, true);
+        }
+
+        @Override
+        protected void handle(PlayerQuitEvent event) {
+            Player player = event.getPlayer();
+            logger.info("Player quit event triggered: " + player.getName());
+
+            JsonObject eventData = new JsonObject();
+            eventData.add("player", createPlayerData(player));
+
+            sendGameEvent("player-disconnected", eventData);
+            logger.info("Player disconnected event processed: " + player.getName());
+        }
+    }
+
+    static final class ChatMessage extends TakaroEventModule<AsyncPlayerChatEvent> {
+        ChatMessage(TakaroPlugin plugin) {
+            super(plugin, "chat-message", AsyncPlayerChatEvent.class, EventPriority.NORMAL, true);
+        }
+
+        @Override
+        protected void handle(AsyncPlayerChatEvent event) {
+            Player player = event.getPlayer();
+            String message = event.getMessage();
+            logger.info("Chat event triggered: " + player.getName() + ": " + message);
+
+            // Since this is an async event, schedule the Takaro event sending on the main thread
+            plugin.getServer().getScheduler().runTask(plugin, plugin.getProfiler().wrap("chat", () -> {
+                JsonObject eventData = new JsonObject();
+                eventData.add("player", createPlayerData(player));
+                eventData.addProperty("channel", "global");
+                eventData.addProperty("msg", message);
+
+                sendGameEvent("chat-message", eventData);
+                logger.info("Chat message event processed: " + player.getName());
+            }));
+        }
+    }
+
+    static final class PlayerDeath extends TakaroEventModule<PlayerDeathEvent> {
+        PlayerDeath(TakaroPlugin plugin) {
+            super(plugin, "player-death", PlayerDeathEvent.class, EventPriority.NORMAL, true);
+        }
+
+        @Override
+        protected void handle(PlayerDeathEvent event) {
+            Player player = event.getEntity();
+
+            JsonObject eventData = new JsonObject();
+            eventData.add("player", createPlayerData(player));
+
+            // Add attacker if it was a PvP death
+            if (player.getKiller() != null) {
+                eventData.add("attacker", createPlayerData(player.getKiller()));
+            }
+
+            eventData.add("position", createPosition(player.getLocation()));
+
+            sendGameEvent("player-death", eventData);
+            logger.info("Player death event sent: " + player.getName());
+        }
+    }
+
+    static final class EntityKilled extends TakaroEventModule<EntityDeathEvent> {
+        EntityKilled(TakaroPlugin plugin) {
+            super(plugin, "entity-killed", EntityDeathEvent.class, EventPriority.NORMAL, true);
+        }
+
+        @Override
+        protected void handle(EntityDeathEvent event) {
+            // Only send if killed by a player
+            if (!(event.getEntity().getKiller() instanceof Player)) {
+                return;
+            }
+            Player killer = (Player) event.getEntity().getKiller();
+
+            JsonObject entityData = new JsonObject();
+            entityData.addProperty("type", event.getEntity().getType().name());
+            entityData.addProperty("name", event.getEntity().getType().name().toLowerCase().replace("_", " "));
+
+            JsonObject eventData = new JsonObject();
+            eventData.add("player", createPlayerData(killer));
+            eventData.add("entity", entityData);
+
+            // Add weapon if player has item in hand
+            if (killer.getInventory().getItemInMainHand() != null &&
+                killer.getInventory().getItemInMainHand().getType().name() != "AIR") {
+                JsonObject weapon = new JsonObject();
+                weapon.addProperty("code", killer.getInventory().getItemInMainHand().getType().name());
+                weapon.addProperty("name", killer.getInventory().getItemInMainHand().getType().name().toLowerCase().replace("_", " "));
+                eventData.add("weapon", weapon);
+            }
+
+            sendGameEvent("entity-killed", eventData);
+
+            if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
+                logger.info("Entity killed event sent: " + killer.getName() + " killed " + event.getEntity().getType().name());
+            }
+        }
+    }
+
+    static final class PlayerAdvancement extends TakaroEventModule<PlayerAdvancementDoneEvent> {
+        PlayerAdvancement(TakaroPlugin plugin) {
+            super(plugin, "player-advancement", PlayerAdvancementDoneEvent.class, EventPriority.MONITOR, false);
+        }
+
+        @Override
+        protected void handle(PlayerAdvancementDoneEvent event) {
+            Advancement advancement = event.getAdvancement();
+            // Unlocking recipes counts as an advancement without a display, skip those
+            if (advancement.getDisplay() == null) {
+                return;
+            }
+
+            JsonObject advancementData = new JsonObject();
+            advancementData.addProperty("code", advancement.getKey().toString());
+            advancementData.addProperty("name", advancement.getDisplay().getTitle());
+
+            JsonObject eventData = new JsonObject();
+            eventData.add("player", createPlayerData(event.getPlayer()));
+            eventData.add("advancement", advancementData);
+
+            sendGameEvent("player-advancement", eventData);
+        }
+    }
+
+    static final class PlayerCommand extends TakaroEventModule<PlayerCommandPreprocessEvent> {
+        // Commands that take passwords or private messages, used when takaro.events.redacted_commands is empty
+        private static final List<String> DEFAULT_REDACTED_COMMANDS = Arrays.asList(
+                "login", "l", "log", "register", "reg", "changepassword", "changepass", "unregister", "unreg",
+                "email", "msg", "tell", "w", "whisper", "m", "r", "reply", "mail");
+
+        PlayerCommand(TakaroPlugin plugin) {
+            super(plugin, "player-command", PlayerCommandPreprocessEvent.class, EventPriority.MONITOR, false);
+        }
+
+        @Override
+        protected boolean ignoreCancelled() {
+            // Commands blocked by other plugins never ran
+            return true;
+        }
+
+        @Override
+        protected void handle(PlayerCommandPreprocessEvent event) {
+            JsonObject eventData = new JsonObject();
+            eventData.add("player", createPlayerData(event.getPlayer()));
+            eventData.addProperty("command", redactArguments(event.getMessage(), getRedactedCommands()));
+
+            sendGameEvent("player-command", eventData);
+        }
+
+        private List<String> getRedactedCommands() {
+            List<String> configured = plugin.getConfig().getStringList("takaro.events.redacted_commands");
+            return configured == null || configured.isEmpty() ? DEFAULT_REDACTED_COMMANDS : configured;
+        }
+
+        /**
+         * Replaces the arguments of a redacted command, so "/login hunter2" is sent as "/login <redacted>".
+         * Namespaced labels such as "/authme:login" match the command name.
+         *
+         * @param message The command line as typed, including the slash
+         * @param redacted Command names whose arguments are hidden
+         * @return The command line to forward
+         */
+        static String redactArguments(String message, List<String> redacted) {
+            int space = message.indexOf(' ');
+            if (space < 0) {
+                return message;
+            }
+
+            String label = message.substring(message.startsWith("/") ? 1 : 0, space);
+            label = label.substring(label.lastIndexOf(':') + 1);
+            for (String command : redacted) {
+                String name = command.startsWith("/") ? command.substring(1) : command;
+                if (name.equalsIgnoreCase(label)) {
+                    return message.substring(0, space) + " <redacted>";
+                }
+            }
+            return message;
+        }
+    }
+
+    static final class PlayerWorldChange extends TakaroEventModule<PlayerChangedWorldEvent> {
+        PlayerWorldChange(TakaroPlugin plugin) {
+            super(plugin, "player-world-change", PlayerChangedWorldEvent.class, EventPriority.MONITOR, false);
+        }
+
+        @Override
+        protected void handle(PlayerChangedWorldEvent event) {
+            World from = event.getFrom();
+            World to = event.getPlayer().getWorld();
+
+            JsonObject eventData = new JsonObject();
+            eventData.add("player", createPlayerData(event.getPlayer()));
+            eventData.addProperty("fromWorld", from.getName());
+            eventData.addProperty("fromDimension", plugin.getDimensionRegistry().getDimension(from));
+            eventData.add("position", createPosition(event.getPlayer().getLocation()));
+            eventData.addProperty("toWorld", to.getName());
+
+            sendGameEvent("player-world-change", eventData);
+        }
+    }
+
+    static final class PlayerRespawn extends TakaroEventModule<PlayerRespawnEvent> {
+        PlayerRespawn(TakaroPlugin plugin) {
+            super(plugin, "player-respawn", PlayerRespawnEvent.class, EventPriority.MONITOR, false);
+        }
+
+        @Override
+        protected void handle(PlayerRespawnEvent event) {
+            JsonObject eventData = new JsonObject();
+            eventData.add("player", createPlayerData(event.getPlayer()));
+            eventData.add("position", createPosition(event.getRespawnLocation()));
+            eventData.addProperty("bedSpawn", event.isBedSpawn());
+            eventData.addProperty("anchorSpawn", event.isAnchorSpawn());
+
+            sendGameEvent("player-respawn", eventData);
+        }
+    }
+}
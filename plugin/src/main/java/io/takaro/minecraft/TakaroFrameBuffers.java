@@ -0,0 +1,202 @@
+package io.takaro.minecraft;
+
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of reusable buffers that outbound frames are encoded into.
+ *
+ * The sender serializes JSON straight into an {@link Encoder}, which writes
+ * UTF-8 bytes into its buffer, so no intermediate String or byte[] is built
+ * per message. Java-WebSocket copies the payload into its own frame buffer
+ * while sending, so an encoder can be reused as soon as the send returns.
+ *
+ * Buffers are heap buffers: the client writes frames through the socket's
+ * OutputStream, which needs array-backed data, so a direct buffer would only
+ * add a copy. Buffers that grew past the retain limit are not kept.
+ */
+public class TakaroFrameBuffers {
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+    private static final int MAX_POOLED = 8;
+
+    private final Queue<Encoder> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * @return An empty encoder, from the pool when one is available
+     */
+    public Encoder acquire() {
+        Encoder encoder = pool.poll();
+        if (encoder == null) {
+            return new Encoder(INITIAL_CAPACITY);
+        }
+        pooled.decrementAndGet();
+        encoder.reset();
+        return encoder;
+    }
+
+    /**
+     * Returns an encoder to the pool. The encoder must not be used afterwards.
+     *
+     * @param encoder The encoder
+     */
+    public void release(Encoder encoder) {
+        if (encoder.buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            return;
+        }
+        if (pooled.incrementAndGet() > MAX_POOLED) {
+            pooled.decrementAndGet();
+            return;
+        }
+        pool.add(encoder);
+    }
+
+    /**
+     * Writer that encodes characters as UTF-8 into a growable ByteBuffer.
+     */
+    public static final class Encoder extends Writer {
+        private ByteBuffer buffer;
+        private char pendingHighSurrogate = 0;
+
+        private Encoder(int capacity) {
+            this.buffer = ByteBuffer.allocate(capacity);
+        }
+
+        @Override
+        public void write(int c) {
+            encode((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            ensureRemaining(length * 3);
+            for (int i = offset; i < offset + length; i++) {
+                encode(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            // Writer's default copies the string into a new char[], read it in place instead
+            ensureRemaining(length * 3);
+            for (int i = offset; i < offset + length; i++) {
+                encode(text.charAt(i));
+            }
+        }
+
+        @Override
+        public void write(String text) {
+            write(text, 0, text.length());
+        }
+
+        @Override
+        public Writer append(CharSequence text) {
+            CharSequence value = text != null ? text : "null";
+            return append(value, 0, value.length());
+        }
+
+        @Override
+        public Writer append(CharSequence text, int start, int end) {
+            CharSequence value = text != null ? text : "null";
+            ensureRemaining((end - start) * 3);
+            for (int i = start; i < end; i++) {
+                encode(value.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Writer append(char c) {
+            encode(c);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /**
+         * Prepares the encoded bytes for reading.
+         *
+         * @return The buffer, positioned at the start of the encoded bytes
+         */
+        public ByteBuffer finish() {
+            if (pendingHighSurrogate != 0) {
+                // Unpaired surrogate at the end, encode it as '?' like String.getBytes does
+                pendingHighSurrogate = 0;
+                put((byte) '?');
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        /**
+         * Clears the encoder so it can encode the next message.
+         */
+        public void reset() {
+            buffer.clear();
+            pendingHighSurrogate = 0;
+        }
+
+        private void encode(char c) {
+            if (pendingHighSurrogate != 0) {
+                char high = pendingHighSurrogate;
+                pendingHighSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    ensureRemaining(4);
+                    buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                    return;
+                }
+                put((byte) '?');
+            }
+
+            if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                ensureRemaining(2);
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c)) {
+                pendingHighSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                put((byte) '?');
+            } else {
+                ensureRemaining(3);
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+
+        private void put(byte b) {
+            if (!buffer.hasRemaining()) {
+                ensureRemaining(1);
+            }
+            buffer.put(b);
+        }
+
+        private void ensureRemaining(int bytes) {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
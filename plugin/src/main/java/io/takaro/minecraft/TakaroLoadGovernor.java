@@ -0,0 +1,175 @@
+package io.takaro.minecraft;
+
+import com.google.gson.JsonObject;
+import org.apache.logging.log4j.Level;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Lowers forwarding fidelity while the server is lagging, so Takaro doesn't add
+ * work to a server that is already behind.
+ *
+ * Every second the governor compares the recent MSPT measured by the tick
+ * sampler with two thresholds. Above them, the server moves to DEGRADED or
+ * CRITICAL mode:
+ * - DEGRADED forwards only WARN and above, drains logs in 250ms batches,
+ *   reports server-metrics half as often and suspends the optional game
+ *   events (the modules disabled by default, such as player-command)
+ * - CRITICAL forwards only ERROR and above, drains logs in 1s batches,
+ *   reports server-metrics a quarter as often and keeps the optional game
+ *   events suspended
+ *
+ * Moving to a worse mode takes a few consecutive checks, moving back to a
+ * better one takes longer, so a single slow tick doesn't cause flapping.
+ * Each mode change is sent to Takaro as a server-load-mode event.
+ */
+public class TakaroLoadGovernor {
+
+    /**
+     * Forwarding fidelity, from full to minimal.
+     */
+    public enum Mode {
+        NORMAL(null, 0, 1, false),
+        DEGRADED(Level.WARN, 250, 2, true),
+        CRITICAL(Level.ERROR, 1000, 4, true);
+
+        private final Level logLevelFloor;
+        private final long logDrainIntervalMillis;
+        private final int metricsIntervalMultiplier;
+        private final boolean suspendOptionalEvents;
+
+        Mode(Level logLevelFloor, long logDrainIntervalMillis, int metricsIntervalMultiplier,
+             boolean suspendOptionalEvents) {
+            this.logLevelFloor = logLevelFloor;
+            this.logDrainIntervalMillis = logDrainIntervalMillis;
+            this.metricsIntervalMultiplier = metricsIntervalMultiplier;
+            this.suspendOptionalEvents = suspendOptionalEvents;
+        }
+    }
+
+    private final TakaroPlugin plugin;
+    private final Logger logger;
+    private final double degradedMspt;
+    private final double criticalMspt;
+    private final int escalateAfter;
+    private final int recoverAfter;
+
+    private ScheduledExecutorService scheduler;
+    private volatile Mode mode = Mode.NORMAL;
+    private Mode pendingMode = Mode.NORMAL;
+    private int pendingChecks = 0;
+
+    public TakaroLoadGovernor(TakaroPlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.degradedMspt = plugin.getConfig().getDouble("takaro.governor.degraded_mspt", 60.0);
+        this.criticalMspt = Math.max(degradedMspt, plugin.getConfig().getDouble("takaro.governor.critical_mspt", 83.0));
+        this.escalateAfter = Math.max(1, plugin.getConfig().getInt("takaro.governor.escalate_after", 3));
+        this.recoverAfter = Math.max(1, plugin.getConfig().getInt("takaro.governor.recover_after", 15));
+    }
+
+    public void start() {
+        if (!plugin.getConfig().getBoolean("takaro.governor.enabled", true)) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Takaro-Governor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::check, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @return The current forwarding mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    private void check() {
+        try {
+            TakaroTickSampler sampler = plugin.getTickSampler();
+            if (sampler == null) {
+                return;
+            }
+
+            double mspt = sampler.getRecentMspt();
+            Mode target = mspt >= criticalMspt ? Mode.CRITICAL : mspt >= degradedMspt ? Mode.DEGRADED : Mode.NORMAL;
+
+            if (target == mode) {
+                pendingChecks = 0;
+                return;
+            }
+            if (target != pendingMode) {
+                pendingMode = target;
+                pendingChecks = 0;
+            }
+            pendingChecks++;
+
+            int required = target.ordinal() > mode.ordinal() ? escalateAfter : recoverAfter;
+            if (pendingChecks >= required) {
+                pendingChecks = 0;
+                apply(target, mspt);
+            }
+        } catch (Exception e) {
+            if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
+                logger.warning("Load governor check failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void apply(Mode next, double mspt) {
+        Mode previous = mode;
+        mode = next;
+
+        TakaroLogFilter logFilter = plugin.getLogFilter();
+        if (logFilter != null) {
+            logFilter.setLevelFloor(next.logLevelFloor);
+            logFilter.setDrainInterval(next.logDrainIntervalMillis);
+        }
+
+        TakaroTickSampler sampler = plugin.getTickSampler();
+        if (sampler != null) {
+            sampler.setReportIntervalMultiplier(next.metricsIntervalMultiplier);
+        }
+
+        TakaroEventModules eventModules = plugin.getEventModules();
+        if (eventModules != null && next.suspendOptionalEvents != previous.suspendOptionalEvents) {
+            // Registering and unregistering handlers must happen on the main thread
+            plugin.getServer().getScheduler().runTask(plugin,
+                    () -> eventModules.setOptionalSuspended(next.suspendOptionalEvents));
+        }
+
+        String message = String.format("Server load mode %s -> %s (recent MSPT %.1fms)", previous, next, mspt);
+        if (next.ordinal() > previous.ordinal()) {
+            logger.warning(message + ", reducing log, telemetry and game event forwarding");
+        } else {
+            logger.info(message);
+        }
+
+        TakaroWebSocketClient client = plugin.getEventClient();
+        if (client != null && client.isAuthenticated()) {
+            JsonObject data = new JsonObject();
+            data.addProperty("mode", next.name().toLowerCase());
+            data.addProperty("previousMode", previous.name().toLowerCase());
+            data.addProperty("mspt", Math.round(mspt * 100.0) / 100.0);
+            data.addProperty("tps", Math.round(sampler != null ? sampler.getTps() * 100.0 : 2000.0) / 100.0);
+            if (next.logLevelFloor != null) {
+                data.addProperty("minLogLevel", next.logLevelFloor.name());
+            }
+            client.sendGameEvent("server-load-mode", data);
+        }
+    }
+}
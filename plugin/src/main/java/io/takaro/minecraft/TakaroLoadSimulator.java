@@ -0,0 +1,335 @@
+package io.takaro.minecraft;
+
+import org.apache.logging.log4j.LogManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.damage.DamageSource;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Generates synthetic player activity for load profiling.
+ *
+ * A set of simulated players produces chat, join/leave, death, kill and
+ * command events and console log lines at the rates set under
+ * takaro.simulation. The events are real Bukkit events for stand-in players
+ * and are passed to the registered event modules with
+ * {@link TakaroEventModules#dispatch}, so the real handlers build and send them
+ * without the events reaching other plugins. Log lines are written to the
+ * "Simulation" log4j logger, which the log filter doesn't skip, so they take
+ * the same capture and forwarding path as lines from other plugins. Events are
+ * generated on the main thread from a per-tick task timed by the profiler as
+ * "simulation", so the overhead shows up in /takaro stats next to the handlers.
+ *
+ * The simulated events are sent to Takaro like real ones, so this is only
+ * allowed when takaro.simulation.enabled is set and is meant for a local test
+ * server connected to a test game server.
+ */
+public class TakaroLoadSimulator {
+
+    private static final double TICKS_PER_SECOND = 20.0;
+
+    // Not under a logger name the log filter skips, so simulated lines are forwarded like real ones
+    private static final org.apache.logging.log4j.Logger SIMULATION_LOG = LogManager.getLogger("Simulation");
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = Map.of(
+            boolean.class, false, byte.class, (byte) 0, short.class, (short) 0, char.class, (char) 0,
+            int.class, 0, long.class, 0L, float.class, 0f, double.class, 0.0);
+
+    private final TakaroPlugin plugin;
+    private final Logger logger;
+
+    private final List<SimulatedPlayer> players = new ArrayList<>();
+    private BukkitTask task;
+    private long startedAt;
+    private long endsAt;
+
+    private double chatRate;
+    private double joinRate;
+    private double deathRate;
+    private double killRate;
+    private double commandRate;
+    private double logRate;
+
+    private double chatDue;
+    private double joinDue;
+    private double deathDue;
+    private double killDue;
+    private double commandDue;
+    private double logDue;
+    private long ticks;
+    private long eventsSent;
+    private long logLines;
+
+    public TakaroLoadSimulator(TakaroPlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+    }
+
+    /**
+     * @return Whether simulation is allowed by the config
+     */
+    public boolean isEnabled() {
+        return plugin.getConfig().getBoolean("takaro.simulation.enabled", false);
+    }
+
+    public boolean isRunning() {
+        return task != null;
+    }
+
+    /**
+     * Starts generating activity with the rates from config. Must be called on the main thread.
+     *
+     * @param durationSeconds How long to run, 0 to run until stopped
+     * @return false if a simulation is already running
+     */
+    public boolean start(long durationSeconds) {
+        if (task != null) {
+            return false;
+        }
+
+        FileConfiguration config = plugin.getConfig();
+        int playerCount = Math.max(1, config.getInt("takaro.simulation.players", 50));
+        chatRate = Math.max(0, config.getDouble("takaro.simulation.chat_per_second", 5.0));
+        joinRate = Math.max(0, config.getDouble("takaro.simulation.joins_per_second", 0.5));
+        deathRate = Math.max(0, config.getDouble("takaro.simulation.deaths_per_second", 0.5));
+        killRate = Math.max(0, config.getDouble("takaro.simulation.kills_per_second", 2.0));
+        commandRate = Math.max(0, config.getDouble("takaro.simulation.commands_per_second", 1.0));
+        logRate = Math.max(0, config.getDouble("takaro.simulation.log_lines_per_second", 20.0));
+
+        List<World> worlds = Bukkit.getWorlds();
+        World world = worlds.isEmpty() ? null : worlds.get(0);
+        players.clear();
+        for (int i = 1; i <= playerCount; i++) {
+            String name = "SimPlayer" + i;
+            players.add(new SimulatedPlayer(UUID.nameUUIDFromBytes(("takaro-sim:" + name).getBytes(StandardCharsets.UTF_8)),
+                    name, world));
+        }
+
+        chatDue = joinDue = deathDue = killDue = commandDue = logDue = 0;
+        ticks = eventsSent = logLines = 0;
+        startedAt = System.currentTimeMillis();
+        endsAt = durationSeconds > 0 ? startedAt + durationSeconds * 1000 : 0;
+
+        logger.info(String.format("Starting load simulation: %d players, %.1f chat/s, %.1f joins/s, %.1f deaths/s, "
+                + "%.1f kills/s, %.1f commands/s, %.1f log lines/s%s", playerCount, chatRate, joinRate, deathRate,
+                killRate, commandRate, logRate, durationSeconds > 0 ? " for " + durationSeconds + "s" : ""));
+
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin,
+                plugin.getProfiler().wrap("simulation", this::tick), 1, 1);
+        return true;
+    }
+
+    /**
+     * Stops the simulation and logs a summary. Must be called on the main thread.
+     */
+    public void stop() {
+        if (task == null) {
+            return;
+        }
+        task.cancel();
+        task = null;
+        logger.info("Load simulation stopped: " + getSummary());
+    }
+
+    /**
+     * @return Events and log lines generated so far and the elapsed time
+     */
+    public String getSummary() {
+        double elapsed = Math.max(1, System.currentTimeMillis() - startedAt) / 1000.0;
+        return String.format("%d events and %d log lines in %.1fs over %d ticks (%.1f events/s)",
+                eventsSent, logLines, elapsed, ticks, eventsSent / elapsed);
+    }
+
+    /**
+     * @return Events handled by an event module since the simulation started
+     */
+    public long getEventsSent() {
+        return eventsSent;
+    }
+
+    /**
+     * @return Log lines written since the simulation started
+     */
+    public long getLogLines() {
+        return logLines;
+    }
+
+    private void tick() {
+        if (endsAt > 0 && System.currentTimeMillis() >= endsAt) {
+            stop();
+            return;
+        }
+        ticks++;
+
+        TakaroWebSocketClient client = plugin.getEventClient();
+        boolean ready = client != null && client.isAuthenticated();
+
+        chatDue += chatRate / TICKS_PER_SECOND;
+        joinDue += joinRate / TICKS_PER_SECOND;
+        deathDue += deathRate / TICKS_PER_SECOND;
+        killDue += killRate / TICKS_PER_SECOND;
+        commandDue += commandRate / TICKS_PER_SECOND;
+        logDue += logRate / TICKS_PER_SECOND;
+
+        // Events that fall due while disconnected are skipped, like real events would be
+        for (; chatDue >= 1; chatDue--) {
+            if (ready) {
+                chat();
+            }
+        }
+        for (; joinDue >= 1; joinDue--) {
+            if (ready) {
+                rejoin();
+            }
+        }
+        for (; deathDue >= 1; deathDue--) {
+            if (ready) {
+                death();
+            }
+        }
+        for (; killDue >= 1; killDue--) {
+            if (ready) {
+                kill();
+            }
+        }
+        for (; commandDue >= 1; commandDue--) {
+            if (ready) {
+                command();
+            }
+        }
+        for (; logDue >= 1; logDue--) {
+            logLines++;
+            SIMULATION_LOG.info("log line {} from {}", logLines, randomPlayer().name);
+        }
+    }
+
+    private void chat() {
+        Player player = randomPlayer().player;
+        // Dispatched from the main thread, the module still takes its async path and hops back to the main thread
+        dispatch(new AsyncPlayerChatEvent(true, player, "simulated message " + (eventsSent + 1), new HashSet<>()));
+    }
+
+    private void rejoin() {
+        Player player = randomPlayer().player;
+        dispatch(new PlayerQuitEvent(player, player.getName() + " left the game"));
+        dispatch(new PlayerJoinEvent(player, player.getName() + " joined the game"));
+    }
+
+    private void death() {
+        SimulatedPlayer victim = randomPlayer();
+        // Half the deaths are PvP, reported through getKiller like a real kill
+        if (ThreadLocalRandom.current().nextBoolean()) {
+            victim.killer = randomPlayer().player;
+        }
+        try {
+            dispatch(new PlayerDeathEvent(victim.player, damageSource(), new ArrayList<>(), 0,
+                    victim.name + " died"));
+        } finally {
+            victim.killer = null;
+        }
+    }
+
+    private void kill() {
+        Player killer = randomPlayer().player;
+        LivingEntity zombie = stub(LivingEntity.class, method -> switch (method) {
+            case "getKiller" -> killer;
+            case "getType" -> EntityType.ZOMBIE;
+            case "getLocation" -> killer.getLocation();
+            default -> null;
+        });
+        dispatch(new EntityDeathEvent(zombie, damageSource(), new ArrayList<>()));
+    }
+
+    private void command() {
+        Player player = randomPlayer().player;
+        String command = ThreadLocalRandom.current().nextBoolean() ? "/spawn" : "/login simulated-password";
+        dispatch(new PlayerCommandPreprocessEvent(player, command));
+    }
+
+    private void dispatch(Event event) {
+        if (plugin.getEventModules().dispatch(event)) {
+            eventsSent++;
+        }
+    }
+
+    private SimulatedPlayer randomPlayer() {
+        return players.get(ThreadLocalRandom.current().nextInt(players.size()));
+    }
+
+    private static DamageSource damageSource() {
+        return stub(DamageSource.class, method -> null);
+    }
+
+    /**
+     * Builds a stand-in for a Bukkit interface. Methods the answers function returns null for
+     * return the type's default value, so the stand-in only needs what the handlers read.
+     */
+    private static <T> T stub(Class<T> type, Function<String, Object> answers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                default:
+                    break;
+            }
+            Object answer = answers.apply(method.getName());
+            return answer != null ? answer : PRIMITIVE_DEFAULTS.get(method.getReturnType());
+        });
+        return type.cast(proxy);
+    }
+
+    private static final class SimulatedPlayer {
+        private final String name;
+        private final Player player;
+        private volatile Player killer;
+
+        private SimulatedPlayer(UUID uuid, String name, World world) {
+            this.name = name;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Location location = new Location(world, random.nextDouble(-1000, 1000), random.nextDouble(60, 120),
+                    random.nextDouble(-1000, 1000));
+            PlayerInventory inventory = stub(PlayerInventory.class, method -> null);
+            int ping = random.nextInt(20, 150);
+
+            this.player = stub(Player.class, method -> switch (method) {
+                case "getUniqueId" -> uuid;
+                case "getName", "getDisplayName", "getPlayerListName", "toString" -> name;
+                case "getType" -> EntityType.PLAYER;
+                case "getPing" -> ping;
+                case "getLocation" -> location.clone();
+                case "getWorld" -> world;
+                case "getKiller" -> killer;
+                case "getInventory" -> inventory;
+                case "getServer" -> Bukkit.getServer();
+                case "isOnline" -> true;
+                default -> null;
+            });
+        }
+    }
+}
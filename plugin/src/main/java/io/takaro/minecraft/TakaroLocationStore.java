@@ -0,0 +1,467 @@
+package io.takaro.minecraft;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Named regions (spawns, arenas, shops) served to Takaro through listLocations.
+ *
+ * Regions are stored in locations.yml in the plugin data folder. World spawns
+ * are added automatically as circular regions. The regions are indexed per
+ * dimension in a uniform grid on the X/Z plane, so finding the regions that
+ * contain a point only checks the regions overlapping that point's cell. This
+ * keeps a per-move region check cheap.
+ *
+ * The index and the serialized listLocations payload are rebuilt as an
+ * immutable snapshot whenever regions change, so reads never lock.
+ */
+public class TakaroLocationStore implements Listener {
+
+    private static final String FILE_NAME = "locations.yml";
+
+    // Regions covering more cells than this are checked on every query instead of being indexed
+    private static final int MAX_INDEXED_CELLS = 1024;
+
+    // Codes are used as YAML keys, so a '.' would be saved as a nested section
+    private static final Pattern CODE_PATTERN = Pattern.compile("[A-Za-z0-9_-]+");
+
+    /**
+     * A named region, either a circle (radius) or an axis-aligned box (sizeX/Y/Z from the position).
+     */
+    public static final class Region {
+        private final String code;
+        private final String name;
+        private final String dimension;
+        private final double x;
+        private final double y;
+        private final double z;
+        private final double radius;
+        private final double sizeX;
+        private final double sizeY;
+        private final double sizeZ;
+        private final boolean spawn;
+
+        private Region(String code, String name, String dimension, double x, double y, double z,
+                       double radius, double sizeX, double sizeY, double sizeZ, boolean spawn) {
+            this.code = code;
+            this.name = name;
+            this.dimension = dimension;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.radius = radius;
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+            this.spawn = spawn;
+        }
+
+        public static Region circle(String code, String name, String dimension, double x, double y, double z, double radius) {
+            return new Region(code, name, dimension, x, y, z, radius, 0, 0, 0, false);
+        }
+
+        public static Region box(String code, String name, String dimension, double x, double y, double z,
+                                 double sizeX, double sizeY, double sizeZ) {
+            return new Region(code, name, dimension, x, y, z, 0, sizeX, sizeY, sizeZ, false);
+        }
+
+        public boolean isCircle() {
+            return radius > 0;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDimension() {
+            return dimension;
+        }
+
+        /**
+         * Checks whether a point lies inside the region. Circles are checked on the X/Z plane only.
+         */
+        public boolean contains(double px, double py, double pz) {
+            if (isCircle()) {
+                double dx = px - x;
+                double dz = pz - z;
+                return dx * dx + dz * dz <= radius * radius;
+            }
+            return px >= x && px <= x + sizeX
+                    && py >= y && py <= y + sizeY
+                    && pz >= z && pz <= z + sizeZ;
+        }
+
+        private double minX() {
+            return isCircle() ? x - radius : x;
+        }
+
+        private double maxX() {
+            return isCircle() ? x + radius : x + sizeX;
+        }
+
+        private double minZ() {
+            return isCircle() ? z - radius : z;
+        }
+
+        private double maxZ() {
+            return isCircle() ? z + radius : z + sizeZ;
+        }
+
+        private JsonObject toJson() {
+            JsonObject location = new JsonObject();
+            location.addProperty("name", name);
+            location.addProperty("code", code);
+
+            JsonObject position = new JsonObject();
+            position.addProperty("x", x);
+            position.addProperty("y", y);
+            position.addProperty("z", z);
+            position.addProperty("dimension", dimension);
+            location.add("position", position);
+
+            if (isCircle()) {
+                location.addProperty("radius", radius);
+            } else {
+                location.addProperty("sizeX", sizeX);
+                location.addProperty("sizeY", sizeY);
+                location.addProperty("sizeZ", sizeZ);
+            }
+
+            if (spawn) {
+                JsonObject metadata = new JsonObject();
+                metadata.addProperty("type", "spawn");
+                location.add("metadata", metadata);
+            }
+            return location;
+        }
+    }
+
+    /**
+     * Immutable grid index and serialized form of one set of regions.
+     */
+    private static final class Snapshot {
+        private final Map<String, Map<Long, List<Region>>> cells;
+        private final Map<String, List<Region>> unindexed;
+        private final JsonArray payload;
+        private final String serializedPayload;
+
+        private Snapshot(Map<String, Map<Long, List<Region>>> cells, Map<String, List<Region>> unindexed,
+                         JsonArray payload, String serializedPayload) {
+            this.cells = cells;
+            this.unindexed = unindexed;
+            this.payload = payload;
+            this.serializedPayload = serializedPayload;
+        }
+    }
+
+    private final TakaroPlugin plugin;
+    private final Logger logger;
+    private final Gson gson = new Gson();
+    private final File file;
+    private final int cellSize;
+    private final double spawnRadius;
+
+    // Configured regions by code, guarded by this
+    private final Map<String, Region> regions = new LinkedHashMap<>();
+    private List<Region> spawnRegions = List.of();
+    private volatile Snapshot snapshot;
+
+    public TakaroLocationStore(TakaroPlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.file = new File(plugin.getDataFolder(), FILE_NAME);
+        this.cellSize = Math.max(1, plugin.getConfig().getInt("takaro.locations.cell_size", 64));
+        this.spawnRadius = plugin.getConfig().getDouble("takaro.locations.spawn_radius", 50);
+        this.snapshot = buildSnapshot(List.of());
+    }
+
+    /**
+     * Loads regions from locations.yml and refreshes world spawns. Must be called on the main thread.
+     */
+    public synchronized void load() {
+        regions.clear();
+
+        if (file.exists()) {
+            YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+            ConfigurationSection section = yaml.getConfigurationSection("locations");
+            if (section != null) {
+                for (String code : section.getKeys(false)) {
+                    Region region = readRegion(code, section.getConfigurationSection(code));
+                    if (region != null) {
+                        regions.put(code, region);
+                    }
+                }
+            }
+        }
+
+        refreshSpawns();
+        logger.info("Loaded " + regions.size() + " locations from " + FILE_NAME);
+    }
+
+    /**
+     * Recreates the spawn regions from the loaded worlds. Must be called on the main thread.
+     */
+    public synchronized void refreshSpawns() {
+        List<Region> spawns = new ArrayList<>();
+        if (spawnRadius > 0) {
+            for (World world : Bukkit.getWorlds()) {
+                Location spawn = world.getSpawnLocation();
+                spawns.add(new Region("spawn_" + world.getName(), world.getName() + " Spawn",
+                        plugin.getDimensionRegistry().getDimension(world),
+                        spawn.getX(), spawn.getY(), spawn.getZ(), spawnRadius, 0, 0, 0, true));
+            }
+        }
+        spawnRegions = spawns;
+        rebuild();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        refreshSpawns();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        synchronized (this) {
+            List<Region> spawns = new ArrayList<>(spawnRegions);
+            spawns.removeIf(region -> region.getCode().equals("spawn_" + event.getWorld().getName()));
+            spawnRegions = spawns;
+            rebuild();
+        }
+    }
+
+    /**
+     * Adds or replaces a region and saves the store.
+     *
+     * @param region The region to store
+     * @throws IllegalArgumentException If the code or size can't be stored
+     */
+    public synchronized void put(Region region) throws IOException {
+        if (!isValidCode(region.getCode())) {
+            throw new IllegalArgumentException("Location code may only contain letters, digits, '_' and '-': " + region.getCode());
+        }
+        if (region.isCircle() ? !isValidSize(region.radius)
+                : !isValidSize(region.sizeX) || !isValidSize(region.sizeY) || !isValidSize(region.sizeZ)) {
+            throw new IllegalArgumentException("Location size must be a finite number greater than 0");
+        }
+        regions.put(region.getCode(), region);
+        rebuild();
+        save();
+    }
+
+    /**
+     * Removes a region and saves the store.
+     *
+     * @param code The region code
+     * @return true if a region was removed
+     */
+    public synchronized boolean remove(String code) throws IOException {
+        if (regions.remove(code) == null) {
+            return false;
+        }
+        rebuild();
+        save();
+        return true;
+    }
+
+    /**
+     * @return The listLocations payload, built once per change
+     */
+    public JsonArray getPayload() {
+        return snapshot.payload;
+    }
+
+    /**
+     * @return The listLocations payload already serialized to JSON
+     */
+    public String getSerializedPayload() {
+        return snapshot.serializedPayload;
+    }
+
+    /**
+     * Finds the regions that contain a point. Safe to call from any thread.
+     *
+     * @param dimension The Takaro dimension of the point
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @param z Z coordinate
+     * @return The containing regions, empty if none
+     */
+    public List<Region> getRegionsAt(String dimension, double x, double y, double z) {
+        Snapshot current = snapshot;
+        List<Region> result = null;
+
+        Map<Long, List<Region>> dimensionCells = current.cells.get(dimension);
+        if (dimensionCells != null) {
+            List<Region> candidates = dimensionCells.get(cellKey(cell(x), cell(z)));
+            if (candidates != null) {
+                for (Region region : candidates) {
+                    if (region.contains(x, y, z)) {
+                        if (result == null) {
+                            result = new ArrayList<>(2);
+                        }
+                        result.add(region);
+                    }
+                }
+            }
+        }
+
+        List<Region> large = current.unindexed.get(dimension);
+        if (large != null) {
+            for (Region region : large) {
+                if (region.contains(x, y, z)) {
+                    if (result == null) {
+                        result = new ArrayList<>(2);
+                    }
+                    result.add(region);
+                }
+            }
+        }
+
+        return result != null ? result : Collections.emptyList();
+    }
+
+    /**
+     * @return The configured regions, without world spawns
+     */
+    public synchronized Collection<Region> getRegions() {
+        return new ArrayList<>(regions.values());
+    }
+
+    private void rebuild() {
+        List<Region> all = new ArrayList<>(spawnRegions);
+        all.addAll(regions.values());
+        snapshot = buildSnapshot(all);
+    }
+
+    private Snapshot buildSnapshot(List<Region> all) {
+        Map<String, Map<Long, List<Region>>> cells = new HashMap<>();
+        Map<String, List<Region>> unindexed = new HashMap<>();
+        JsonArray payload = new JsonArray();
+
+        for (Region region : all) {
+            payload.add(region.toJson());
+
+            int minCellX = cell(region.minX());
+            int maxCellX = cell(region.maxX());
+            int minCellZ = cell(region.minZ());
+            int maxCellZ = cell(region.maxZ());
+            long cellCount = (long) (maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1);
+
+            if (cellCount > MAX_INDEXED_CELLS) {
+                unindexed.computeIfAbsent(region.getDimension(), d -> new ArrayList<>()).add(region);
+                continue;
+            }
+
+            Map<Long, List<Region>> dimensionCells = cells.computeIfAbsent(region.getDimension(), d -> new HashMap<>());
+            for (int cx = minCellX; cx <= maxCellX; cx++) {
+                for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+                    dimensionCells.computeIfAbsent(cellKey(cx, cz), k -> new ArrayList<>(1)).add(region);
+                }
+            }
+        }
+
+        return new Snapshot(cells, unindexed, payload, gson.toJson(payload));
+    }
+
+    private void save() throws IOException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        for (Region region : regions.values()) {
+            String path = "locations." + region.getCode();
+            yaml.set(path + ".name", region.name);
+            yaml.set(path + ".dimension", region.dimension);
+            yaml.set(path + ".x", region.x);
+            yaml.set(path + ".y", region.y);
+            yaml.set(path + ".z", region.z);
+            if (region.isCircle()) {
+                yaml.set(path + ".radius", region.radius);
+            } else {
+                yaml.set(path + ".sizeX", region.sizeX);
+                yaml.set(path + ".sizeY", region.sizeY);
+                yaml.set(path + ".sizeZ", region.sizeZ);
+            }
+        }
+        yaml.save(file);
+    }
+
+    private Region readRegion(String code, ConfigurationSection section) {
+        if (section == null) {
+            return null;
+        }
+        if (!isValidCode(code)) {
+            logger.warning("Location '" + code + "' has an invalid code, use letters, digits, '_' and '-', skipping");
+            return null;
+        }
+
+        String name = section.getString("name", code);
+        String dimension = section.getString("dimension", TakaroDimensionRegistry.OVERWORLD).toLowerCase();
+        double x = section.getDouble("x");
+        double y = section.getDouble("y");
+        double z = section.getDouble("z");
+
+        if (section.contains("radius")) {
+            double radius = section.getDouble("radius");
+            if (!isValidSize(radius)) {
+                logger.warning("Location '" + code + "' has no valid radius, skipping");
+                return null;
+            }
+            return Region.circle(code, name, dimension, x, y, z, radius);
+        }
+
+        double sizeX = section.getDouble("sizeX");
+        double sizeY = section.getDouble("sizeY");
+        double sizeZ = section.getDouble("sizeZ");
+        if (!isValidSize(sizeX) || !isValidSize(sizeY) || !isValidSize(sizeZ)) {
+            logger.warning("Location '" + code + "' needs a radius or positive sizeX, sizeY and sizeZ, skipping");
+            return null;
+        }
+        return Region.box(code, name, dimension, x, y, z, sizeX, sizeY, sizeZ);
+    }
+
+    /**
+     * @param code A region code
+     * @return Whether the code can be used as a key in locations.yml
+     */
+    public static boolean isValidCode(String code) {
+        return code != null && CODE_PATTERN.matcher(code).matches();
+    }
+
+    private static boolean isValidSize(double size) {
+        return Double.isFinite(size) && size > 0;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xffffffffL);
+    }
+}
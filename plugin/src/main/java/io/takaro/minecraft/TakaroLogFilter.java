@@ -1,19 +1,33 @@
 package io.takaro.minecraft;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.core.filter.AbstractFilter;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ReusableMessage;
 import org.bukkit.configuration.file.FileConfiguration;
 
-import java.util.HashSet;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
  * Log4j filter that intercepts server console logs and forwards them to Takaro.
  * 
- * This filter captures all server log events in real-time and sends them as 
+ * This filter captures all server log events in real-time and sends them as
  * Takaro log events, allowing remote monitoring of server activity, errors,
  * and status messages.
  * 
@@ -22,6 +36,22 @@ import java.util.logging.Logger;
  * - Logger name filtering to avoid spam
  * - Anti-loop protection to prevent infinite recursion
  * - Async processing to avoid blocking server performance
+ * - Capturing vanilla command output for executeConsoleCommand
+ * - Buffering logs until Takaro is authenticated, so startup logs aren't lost
+ * 
+ * The filter runs on whichever thread logged, often the main thread, so the
+ * capture step doesn't allocate: it copies the level, logger name, timestamp
+ * and message reference into a preallocated slot of a ring buffer. Reusable
+ * messages, which log4j overwrites on the thread's next log call, are
+ * formatted into the slot's own StringBuilder instead. A single forwarder
+ * thread formats and sends the captured lines. When the ring is full, new
+ * lines are dropped and counted.
+ * 
+ * Lines are sent as structured log events with separate level, logger,
+ * thread, timestamp and msg fields, so Takaro can filter them without parsing.
+ * A logged throwable is added with a limited number of stack frames per cause;
+ * frames shared with the enclosing trace and runs of a repeated frame are
+ * collapsed.
  */
 public class TakaroLogFilter extends AbstractFilter {
     
@@ -32,15 +62,66 @@ public class TakaroLogFilter extends AbstractFilter {
         "org.java_websocket"
     );
     
-    private final TakaroPlugin plugin;
+    private static final long CONFIG_CACHE_DURATION = 30000; // 30 seconds
+    private static final long IDLE_PARK_NANOS = 100_000_000L;
+    
+    // Initial size of each slot's text buffer, and the size a buffer grown by a long line is shrunk back to
+    private static final int SLOT_TEXT_CAPACITY = 128;
+    private static final int MAX_RETAINED_TEXT_CAPACITY = 8192;
+    
+    /**
+     * One captured log line. Fields are written by the logging thread before
+     * {@code sequence} is published and read by the forwarder after it.
+     */
+    private static final class Slot {
+        private volatile long sequence = -1;
+        private Level level;
+        private String loggerName;
+        private long timestamp;
+        private String threadName;
+        private Message message;
+        private Throwable thrown;
+        // Text of a reusable message, used when message is null
+        private final StringBuilder text = new StringBuilder(SLOT_TEXT_CAPACITY);
+    }
+    
     private final Logger logger;
+    private final Supplier<FileConfiguration> config;
+    private final Supplier<TakaroWebSocketClient> eventClient;
     
-    // Cached configuration values for performance
+    // Cached configuration values, read on the logging thread and refreshed by the forwarder
     private volatile boolean forwardingEnabled;
     private volatile Level minLevel;
-    private volatile Set<String> filteredLoggers;
-    private volatile long lastConfigLoad = 0;
-    private static final long CONFIG_CACHE_DURATION = 30000; // 30 seconds
+    
+    // Set by the load governor while the server is lagging
+    private volatile Level levelFloor;
+    private volatile long drainIntervalNanos = 0;
+    private volatile String[] filteredLoggers;
+    private long lastConfigLoad = 0;
+    
+    // Ring of preallocated slots: logging threads claim sequences at head, the forwarder consumes at tail
+    private final Slot[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail = 0;
+    // Lines dropped because the ring was full, counted by the logging threads
+    private final AtomicLong droppedRingFull = new AtomicLong();
+    
+    private volatile Thread forwarder;
+    private volatile boolean forwarderParked = false;
+    private volatile boolean running = false;
+    
+    private final int maxFrames;
+    private final int maxCauses;
+    
+    // Lines logged while no connection is authenticated (server startup, reconnects), oldest dropped first.
+    // Only touched by the forwarder thread
+    private final int bufferSize;
+    private final ArrayDeque<JsonObject> buffer = new ArrayDeque<>();
+    private long droppedWhileBuffering = 0;
+    // All lines dropped while not authenticated, read by the metrics endpoint
+    private final AtomicLong droppedNotConnected = new AtomicLong();
+    private final Map<String, String> simpleNames = new HashMap<>();
     
     /**
      * Creates a new TakaroLogFilter for the given plugin.
@@ -48,13 +129,64 @@ public class TakaroLogFilter extends AbstractFilter {
      * @param plugin The Takaro plugin instance
      */
     public TakaroLogFilter(TakaroPlugin plugin) {
-        this.plugin = plugin;
-        this.logger = plugin.getLogger();
+        this(plugin.getLogger(), plugin::getConfig, plugin::getEventClient);
+    }
+    
+    /**
+     * Creates a filter that reads its configuration and connection from the given sources.
+     * 
+     * @param logger Logger for the filter's own messages
+     * @param config Supplies the current plugin configuration
+     * @param eventClient Supplies the connection log lines are sent on, or null while there is none
+     */
+    TakaroLogFilter(Logger logger, Supplier<FileConfiguration> config, Supplier<TakaroWebSocketClient> eventClient) {
+        this.logger = logger;
+        this.config = config;
+        this.eventClient = eventClient;
+        this.bufferSize = Math.max(0, config.get().getInt("takaro.logging.buffer_size", 1000));
+        this.maxFrames = Math.max(0, config.get().getInt("takaro.logging.throwable.max_frames", 20));
+        this.maxCauses = Math.max(0, config.get().getInt("takaro.logging.throwable.max_causes", 5));
+        
+        // Round the ring size up to a power of two so a slot index is a mask
+        int requested = Math.max(64, Math.min(1 << 20, config.get().getInt("takaro.logging.queue_size", 4096)));
+        int capacity = Integer.highestOneBit(requested * 2 - 1);
+        this.ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        
         refreshConfig();
     }
     
     /**
-     * Filters log events and forwards appropriate ones to Takaro.
+     * Starts the forwarder thread.
+     */
+    @Override
+    public void start() {
+        super.start();
+        running = true;
+        Thread thread = new Thread(this::runForwarder, "Takaro-Log-Forwarder");
+        thread.setDaemon(true);
+        forwarder = thread;
+        thread.start();
+    }
+    
+    /**
+     * Stops the forwarder thread. Lines still waiting in the ring are dropped.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = forwarder;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        super.stop();
+    }
+    
+    /**
+     * Captures log events for forwarding to Takaro.
      * 
      * @param event The log event to filter
      * @return Always NEUTRAL to allow normal logging to continue
@@ -62,16 +194,14 @@ public class TakaroLogFilter extends AbstractFilter {
     @Override
     public Result filter(LogEvent event) {
         try {
-            // Refresh config periodically for hot reloading
-            refreshConfigIfNeeded();
+            // Record output of console commands Takaro is running on this thread
+            TakaroCommandCapture.onLogEvent(event);
             
             // Check if log forwarding is enabled
-            if (!forwardingEnabled) {
+            if (!running || !forwardingEnabled) {
                 return Result.NEUTRAL;
             }
             
-            // Get log details
-            String message = event.getMessage().getFormattedMessage();
             String loggerName = event.getLoggerName();
             Level level = event.getLevel();
             
@@ -80,13 +210,11 @@ public class TakaroLogFilter extends AbstractFilter {
                 return Result.NEUTRAL;
             }
             
-            // Format and send the log message
-            String formattedMessage = formatLogMessage(level, loggerName, message);
-            forwardLogEventAsync(formattedMessage);
-            
+            capture(level, loggerName, event.getTimeMillis(), event.getThreadName(), event.getMessage(), event.getThrown());
+        
         } catch (Exception e) {
             // Log errors but don't let them break the filter
-            if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
+            if (config.get().getBoolean("takaro.logging.debug", false)) {
                 logger.severe("Error in TakaroLogFilter: " + e.getMessage());
             }
         }
@@ -96,12 +224,38 @@ public class TakaroLogFilter extends AbstractFilter {
     }
     
     /**
-     * Refreshes cached configuration values if they're stale.
+     * Copies a log line into the next free slot without allocating. A reusable message is
+     * overwritten by the next log call on this thread, so its text is formatted into the slot.
      */
-    private void refreshConfigIfNeeded() {
-        long now = System.currentTimeMillis();
-        if (now - lastConfigLoad > CONFIG_CACHE_DURATION) {
-            refreshConfig();
+    private void capture(Level level, String loggerName, long timestamp, String threadName,
+                         Message message, Throwable thrown) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= ring.length) {
+                droppedRingFull.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+        
+        Slot slot = ring[(int) (sequence & mask)];
+        slot.level = level;
+        slot.loggerName = loggerName;
+        slot.timestamp = timestamp;
+        slot.threadName = threadName;
+        if (message instanceof ReusableMessage reusable) {
+            slot.text.setLength(0);
+            reusable.formatTo(slot.text);
+            slot.message = null;
+            slot.thrown = thrown != null ? thrown : reusable.getThrowable();
+        } else {
+            slot.message = message;
+            slot.thrown = thrown;
+        }
+        slot.sequence = sequence;
+        
+        if (forwarderParked) {
+            LockSupport.unpark(forwarder);
         }
     }
     
@@ -110,34 +264,35 @@ public class TakaroLogFilter extends AbstractFilter {
      */
     private void refreshConfig() {
         try {
-            FileConfiguration config = plugin.getConfig();
+            FileConfiguration config = this.config.get();
             
             forwardingEnabled = config.getBoolean("takaro.logging.forward_server_logs", true);
             
             // Parse minimum log level
             String minLevelStr = config.getString("takaro.logging.min_level", "INFO");
-            try {
-                minLevel = Level.valueOf(minLevelStr.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                minLevel = Level.INFO;
+            Level parsed = Level.toLevel(minLevelStr.toUpperCase(), null);
+            if (parsed == null) {
+                parsed = Level.INFO;
                 logger.warning("Invalid log level '" + minLevelStr + "', defaulting to INFO");
             }
+            minLevel = parsed;
             
-            // Build filtered loggers set
-            filteredLoggers = new HashSet<>(DEFAULT_FILTERED_LOGGERS);
+            // Build filtered loggers list
+            Set<String> filtered = new LinkedHashSet<>(DEFAULT_FILTERED_LOGGERS);
             List<String> configFiltered = config.getStringList("takaro.logging.filtered_loggers");
             if (configFiltered != null) {
-                filteredLoggers.addAll(configFiltered);
+                filtered.addAll(configFiltered);
             }
+            filteredLoggers = filtered.toArray(new String[0]);
             
             lastConfigLoad = System.currentTimeMillis();
-            
+        
         } catch (Exception e) {
             logger.warning("Failed to refresh log filter config: " + e.getMessage());
             // Use safe defaults
             forwardingEnabled = true;
             minLevel = Level.INFO;
-            filteredLoggers = new HashSet<>(DEFAULT_FILTERED_LOGGERS);
+            filteredLoggers = DEFAULT_FILTERED_LOGGERS.toArray(new String[0]);
         }
     }
     
@@ -152,8 +307,10 @@ public class TakaroLogFilter extends AbstractFilter {
             return true;
         }
         
-        for (String filteredLogger : filteredLoggers) {
-            if (loggerName.contains(filteredLogger)) {
+        // Indexed loop, iterating a collection would allocate an iterator per event
+        String[] filtered = filteredLoggers;
+        for (int i = 0; i < filtered.length; i++) {
+            if (loggerName.contains(filtered[i])) {
                 return true;
             }
         }
@@ -167,34 +324,102 @@ public class TakaroLogFilter extends AbstractFilter {
      * @param level The log level to check
      * @return true if this level should be forwarded
      */
-    private boolean shouldForwardLevel(Level level) {
+    boolean shouldForwardLevel(Level level) {
         if (level == null || minLevel == null) {
             return false;
         }
         
-        // Forward if the log level is at or above the minimum level
-        // Higher integer values = more severe (ERROR > WARN > INFO > DEBUG)
-        return level.intLevel() >= minLevel.intLevel();
+        // Forward if the log level is at least as severe as the minimum level
+        // log4j uses lower integer values for more severe levels (ERROR < WARN < INFO < DEBUG)
+        Level floor = levelFloor;
+        return level.isMoreSpecificThan(minLevel) && (floor == null || level.isMoreSpecificThan(floor));
     }
     
     /**
-     * Formats a log message for sending to Takaro.
+     * Builds the structured log event data for a captured line.
      * 
-     * @param level The log level
-     * @param loggerName The logger name
-     * @param message The log message
-     * @return Formatted message string
-     */
-    private String formatLogMessage(Level level, String loggerName, String message) {
-        // Simplify logger names for readability
-        String simpleName = simplifyLoggerName(loggerName);
+     * @param slot The captured line
+     * @return The log event data
+     */
+    private JsonObject toLogData(Slot slot) {
+        JsonObject data = new JsonObject();
+        data.addProperty("level", slot.level.name());
+        data.addProperty("logger", simplifyLoggerName(slot.loggerName));
+        data.addProperty("thread", slot.threadName);
+        data.addProperty("timestamp", Instant.ofEpochMilli(slot.timestamp).toString());
+        data.addProperty("msg", slot.message != null ? slot.message.getFormattedMessage() : slot.text.toString());
         
-        // Format: [LEVEL] LoggerName: Message
-        return String.format("[%s] %s: %s", level.name(), simpleName, message);
+        Throwable thrown = slot.thrown != null || slot.message == null ? slot.thrown : slot.message.getThrowable();
+        if (thrown != null) {
+            data.add("throwable", describeThrowable(thrown));
+        }
+        return data;
     }
     
     /**
-     * Simplifies a logger name by extracting the class name.
+     * Describes a throwable and its causes. Each cause lists at most maxFrames frames,
+     * leaves out the frames it shares with the trace that wraps it (like "... n more" in
+     * printed traces) and collapses a frame repeated back to back, as in deep recursion.
+     * 
+     * @param thrown The throwable
+     * @return The throwable description
+     */
+    private JsonObject describeThrowable(Throwable thrown) {
+        JsonObject root = null;
+        JsonObject previous = null;
+        StackTraceElement[] enclosing = null;
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        
+        for (Throwable current = thrown; current != null && seen.add(current) && seen.size() <= maxCauses + 1;
+                current = current.getCause()) {
+            JsonObject description = new JsonObject();
+            description.addProperty("type", current.getClass().getName());
+            if (current.getMessage() != null) {
+                description.addProperty("message", current.getMessage());
+            }
+            
+            StackTraceElement[] trace = current.getStackTrace();
+            int common = 0;
+            if (enclosing != null) {
+                while (common < trace.length && common < enclosing.length
+                        && trace[trace.length - 1 - common].equals(enclosing[enclosing.length - 1 - common])) {
+                    common++;
+                }
+            }
+            
+            JsonArray frames = new JsonArray();
+            int used = trace.length - common;
+            int index = 0;
+            while (index < used && frames.size() < maxFrames) {
+                int run = 1;
+                while (index + run < used && trace[index + run].equals(trace[index])) {
+                    run++;
+                }
+                frames.add(run > 1 ? trace[index] + " (repeated " + run + " times)" : trace[index].toString());
+                index += run;
+            }
+            description.add("frames", frames);
+            if (index < used) {
+                description.addProperty("framesOmitted", used - index);
+            }
+            if (common > 0) {
+                description.addProperty("framesInCommon", common);
+            }
+            
+            if (root == null) {
+                root = description;
+            } else {
+                previous.add("cause", description);
+            }
+            previous = description;
+            enclosing = trace;
+        }
+        return root;
+    }
+    
+    /**
+     * Simplifies a logger name by extracting the class name. Results are cached
+     * since there are only a few hundred distinct loggers.
      * 
      * @param loggerName The full logger name
      * @return Simplified logger name
@@ -204,32 +429,172 @@ public class TakaroLogFilter extends AbstractFilter {
             return "Unknown";
         }
         
-        // Convert full class names to simple names
-        if (loggerName.contains(".")) {
-            String[] parts = loggerName.split("\\.");
-            return parts[parts.length - 1];
-        }
-        
-        return loggerName;
+        return simpleNames.computeIfAbsent(loggerName, name -> name.substring(name.lastIndexOf('.') + 1));
     }
     
     /**
-     * Forwards a log event to Takaro asynchronously to avoid blocking.
-     * 
-     * @param formattedMessage The formatted log message
+     * Forwarder loop: drains captured lines, formats them and hands them to the connection.
      */
-    private void forwardLogEventAsync(String formattedMessage) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+    private void runForwarder() {
+        while (running) {
             try {
-                TakaroWebSocketClient client = plugin.getWebSocketClient();
-                if (client != null && client.isAuthenticated()) {
-                    client.sendLogEvent(formattedMessage);
+                // Refresh config periodically for hot reloading
+                if (System.currentTimeMillis() - lastConfigLoad > CONFIG_CACHE_DURATION) {
+                    refreshConfig();
+                }
+                
+                boolean drained = drainRing();
+                flushBufferIfReady();
+                
+                long interval = drainIntervalNanos;
+                if (interval > 0) {
+                    // Collect lines for a while and send them together, fewer wakeups while the server lags
+                    LockSupport.parkNanos(interval);
+                } else if (!drained) {
+                    forwarderParked = true;
+                    if (head.get() == tail) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    forwarderParked = false;
                 }
             } catch (Exception e) {
-                if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
-                    logger.warning("Failed to forward log event: " + e.getMessage());
+                if (config.get().getBoolean("takaro.logging.debug", false)) {
+                    logger.warning("Failed to forward log events: " + e.getMessage());
                 }
             }
-        });
+        }
+    }
+    
+    /**
+     * Forwards every published slot.
+     * 
+     * @return true if at least one line was consumed
+     */
+    private boolean drainRing() {
+        TakaroWebSocketClient client = eventClient.get();
+        boolean ready = client != null && client.isAuthenticated();
+        boolean drained = false;
+        
+        while (running) {
+            long sequence = tail;
+            Slot slot = ring[(int) (sequence & mask)];
+            if (slot.sequence != sequence) {
+                if (head.get() == sequence) {
+                    break;
+                }
+                // Claimed but not yet published, the logging thread is between the claim and the write
+                Thread.onSpinWait();
+                continue;
+            }
+            
+            JsonObject line = toLogData(slot);
+            slot.level = null;
+            slot.loggerName = null;
+            slot.threadName = null;
+            slot.message = null;
+            slot.thrown = null;
+            if (slot.text.capacity() > MAX_RETAINED_TEXT_CAPACITY) {
+                // Don't keep a buffer sized for one long line, such as a stack trace, for good
+                slot.text.setLength(0);
+                slot.text.trimToSize();
+                slot.text.ensureCapacity(SLOT_TEXT_CAPACITY);
+            }
+            tail = sequence + 1;
+            drained = true;
+            
+            if (ready && buffer.isEmpty()) {
+                client.sendLogEvent(line);
+            } else {
+                addToBuffer(line);
+            }
+        }
+        return drained;
+    }
+    
+    private void addToBuffer(JsonObject line) {
+        if (bufferSize == 0) {
+            // Buffering disabled, lines logged before authentication are dropped
+            droppedNotConnected.incrementAndGet();
+            return;
+        }
+        if (buffer.size() >= bufferSize) {
+            buffer.poll();
+            droppedWhileBuffering++;
+            droppedNotConnected.incrementAndGet();
+        }
+        buffer.add(line);
+    }
+    
+    /**
+     * Sends the lines buffered before authentication once a connection is authenticated.
+     */
+    private void flushBufferIfReady() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        TakaroWebSocketClient client = eventClient.get();
+        if (client == null || !client.isAuthenticated()) {
+            return;
+        }
+        
+        if (droppedWhileBuffering > 0) {
+            JsonObject notice = new JsonObject();
+            notice.addProperty("level", Level.WARN.name());
+            notice.addProperty("logger", "TakaroLogFilter");
+            notice.addProperty("thread", Thread.currentThread().getName());
+            notice.addProperty("timestamp", Instant.now().toString());
+            notice.addProperty("msg", droppedWhileBuffering + " log lines were dropped while waiting for the Takaro connection");
+            client.sendLogEvent(notice);
+            droppedWhileBuffering = 0;
+        }
+        JsonObject line;
+        while ((line = buffer.poll()) != null) {
+            client.sendLogEvent(line);
+        }
+    }
+    
+    /**
+     * Raises the minimum forwarded level above the configured one, or removes the raise.
+     * 
+     * @param floor The least severe level to forward, or null for the configured min_level
+     */
+    public void setLevelFloor(Level floor) {
+        this.levelFloor = floor;
+    }
+    
+    /**
+     * Sets how long the forwarder waits between drains, 0 to send lines as soon as they arrive.
+     * 
+     * @param millis The drain interval in milliseconds
+     */
+    public void setDrainInterval(long millis) {
+        this.drainIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+    }
+    
+    /**
+     * @return Log lines dropped since startup because the capture ring was full, when lines were
+     *         logged faster than the forwarder could take them
+     */
+    public long getDroppedRingFullCount() {
+        return droppedRingFull.get();
+    }
+
+    /**
+     * @return Log lines dropped since startup while no connection was authenticated, because the
+     *         pre-authentication buffer was full or disabled
+     */
+    public long getDroppedNotConnectedCount() {
+        return droppedNotConnected.get();
+    }
+    
+    /**
+     * Wakes the forwarder so lines buffered before authentication are sent.
+     * Called by the WebSocket client once a connection authenticates.
+     */
+    public void flushBuffered() {
+        Thread thread = forwarder;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,215 @@
+package io.takaro.minecraft;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Serves the plugin's internal metrics in the Prometheus text format.
+ *
+ * Built on the JDK's com.sun.net.httpserver so it adds no dependencies.
+ * Requests are handled on the plugin's I/O executor and only read counters,
+ * so a scrape never touches the main thread. The endpoint is disabled by
+ * default and binds to localhost unless configured otherwise.
+ */
+public class TakaroMetricsEndpoint {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final TakaroPlugin plugin;
+    private final Logger logger;
+    private HttpServer server;
+
+    public TakaroMetricsEndpoint(TakaroPlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+    }
+
+    /**
+     * Starts the HTTP server if enabled in config.
+     */
+    public void start() {
+        if (!plugin.getConfig().getBoolean("takaro.metrics.prometheus.enabled", false)) {
+            return;
+        }
+
+        String bind = plugin.getConfig().getString("takaro.metrics.prometheus.bind", "127.0.0.1");
+        int port = plugin.getConfig().getInt("takaro.metrics.prometheus.port", 9464);
+        String path = plugin.getConfig().getString("takaro.metrics.prometheus.path", "/metrics");
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+            server.createContext(path, this::handle);
+            server.setExecutor(plugin.getIoExecutor());
+            server.start();
+            logger.info("Metrics endpoint listening on http://" + bind + ":" + port + path);
+        } catch (IOException e) {
+            logger.warning("Failed to start metrics endpoint on " + bind + ":" + port + ": " + e.getMessage());
+            server = null;
+        }
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Renders all metrics. Each metric family is written once with one sample per lane,
+     * where lane is "control" or "telemetry" (only present in dual-connection mode).
+     */
+    private String render() {
+        StringBuilder out = new StringBuilder(4096);
+
+        Map<String, TakaroWebSocketClient> lanes = new TreeMap<>();
+        if (plugin.getWebSocketClient() != null) {
+            lanes.put("control", plugin.getWebSocketClient());
+        }
+        if (plugin.getTelemetryClient() != null) {
+            lanes.put("telemetry", plugin.getTelemetryClient());
+        }
+
+        header(out, "takaro_outbound_queue_depth", "gauge", "Messages waiting to be written to the connection");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            sample(out, "takaro_outbound_queue_depth", lane.getKey(), lane.getValue().getOutboundQueueSize());
+        }
+
+        header(out, "takaro_frames_sent_total", "counter", "WebSocket frames sent");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            sample(out, "takaro_frames_sent_total", lane.getKey(), lane.getValue().getFramesSent());
+        }
+
+        header(out, "takaro_bytes_sent_total", "counter", "Payload bytes sent");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            sample(out, "takaro_bytes_sent_total", lane.getKey(), lane.getValue().getBytesSent());
+        }
+
+        header(out, "takaro_frames_received_total", "counter", "WebSocket frames received");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            sample(out, "takaro_frames_received_total", lane.getKey(), lane.getValue().getFramesReceived());
+        }
+
+        header(out, "takaro_bytes_received_total", "counter", "Payload bytes received");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            sample(out, "takaro_bytes_received_total", lane.getKey(), lane.getValue().getBytesReceived());
+        }
+
+        header(out, "takaro_frames_dropped_total", "counter", "Outbound frames dropped because the connection was down");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            sample(out, "takaro_frames_dropped_total", lane.getKey(), lane.getValue().getFramesDropped());
+        }
+
+        header(out, "takaro_reconnects_total", "counter", "Reconnect attempts");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            sample(out, "takaro_reconnects_total", lane.getKey(), lane.getValue().getReconnectCount());
+        }
+
+        header(out, "takaro_authenticated", "gauge", "Whether the connection is open and authenticated");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            sample(out, "takaro_authenticated", lane.getKey(), lane.getValue().isAuthenticated() ? 1 : 0);
+        }
+
+        header(out, "takaro_connection_state", "gauge", "Current connection state, 1 for the active state");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            TakaroConnectionState.State current = lane.getValue().getConnectionState().get();
+            for (TakaroConnectionState.State state : TakaroConnectionState.State.values()) {
+                out.append("takaro_connection_state{lane=\"").append(lane.getKey()).append("\",state=\"")
+                        .append(state.name().toLowerCase()).append("\"} ").append(state == current ? 1 : 0).append('\n');
+            }
+        }
+
+        header(out, "takaro_connection_transitions_total", "counter", "Connection state transitions");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            sample(out, "takaro_connection_transitions_total", lane.getKey(), lane.getValue().getConnectionState().getTransitionCount());
+        }
+
+        header(out, "takaro_request_duration_seconds", "histogram", "Time from receiving a request to queueing its response");
+        for (Map.Entry<String, TakaroWebSocketClient> lane : lanes.entrySet()) {
+            for (Map.Entry<String, TakaroHistogram> action : new TreeMap<>(lane.getValue().getActionLatency()).entrySet()) {
+                action.getValue().writeTo(out, "takaro_request_duration_seconds",
+                        "lane=\"" + lane.getKey() + "\",action=\"" + escape(action.getKey()) + "\"");
+            }
+        }
+
+        TakaroLogFilter logFilter = plugin.getLogFilter();
+        if (logFilter != null) {
+            header(out, "takaro_log_lines_dropped_total", "counter",
+                    "Log lines dropped, because the capture ring was full or while no connection was authenticated");
+            out.append("takaro_log_lines_dropped_total{reason=\"ring_full\"} ")
+                    .append(logFilter.getDroppedRingFullCount()).append('\n');
+            out.append("takaro_log_lines_dropped_total{reason=\"not_connected\"} ")
+                    .append(logFilter.getDroppedNotConnectedCount()).append('\n');
+        }
+
+        TakaroProfiler profiler = plugin.getProfiler();
+        if (profiler != null) {
+            header(out, "takaro_main_thread_seconds_total", "counter", "Main-thread time used by Takaro tasks");
+            for (TakaroProfiler.Section section : profiler.getSections()) {
+                out.append("takaro_main_thread_seconds_total{section=\"").append(escape(section.getName())).append("\"} ")
+                        .append(section.getTotalNanos() / 1e9).append('\n');
+            }
+
+            if (profiler.isTrackingAllocations()) {
+                header(out, "takaro_main_thread_allocated_bytes_total", "counter", "Bytes allocated by Takaro tasks on the main thread");
+                for (TakaroProfiler.Section section : profiler.getSections()) {
+                    out.append("takaro_main_thread_allocated_bytes_total{section=\"").append(escape(section.getName())).append("\"} ")
+                            .append(section.getTotalBytes()).append('\n');
+                }
+            }
+        }
+
+        TakaroTickSampler sampler = plugin.getTickSampler();
+        if (sampler != null) {
+            header(out, "takaro_server_tps", "gauge", "Server ticks per second");
+            out.append("takaro_server_tps ").append(sampler.getTps()).append('\n');
+        }
+
+        TakaroLoadGovernor governor = plugin.getLoadGovernor();
+        if (governor != null) {
+            header(out, "takaro_load_mode", "gauge", "Forwarding mode: 0 normal, 1 degraded, 2 critical");
+            out.append("takaro_load_mode ").append(governor.getMode().ordinal()).append('\n');
+        }
+
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String lane, long value) {
+        out.append(name).append("{lane=\"").append(lane).append("\"} ").append(value).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
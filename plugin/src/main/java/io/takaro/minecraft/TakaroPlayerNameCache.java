@@ -0,0 +1,249 @@
+package io.takaro.minecraft;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * In-memory UUID to name cache for players who may be offline.
+ *
+ * Bukkit.getOfflinePlayer(uuid).getName() can read the user cache or player
+ * data from disk for players who haven't been online recently, which stalls
+ * the WebSocket thread. This cache is filled from the server's usercache.json
+ * on the I/O executor at startup and updated whenever a player joins, so
+ * ban, unban and player lookups usually only read memory. Players missing
+ * from the cache (not in usercache.json, or looked up before it finished
+ * loading) are resolved with getOfflinePlayer on the I/O executor and then
+ * cached. The least recently used entries are evicted once the cache is full.
+ */
+public class TakaroPlayerNameCache implements Listener {
+
+    private static final String USER_CACHE_FILE = "usercache.json";
+
+    private final TakaroPlugin plugin;
+    private final Logger logger;
+    private final int maxEntries;
+
+    // Guarded by this. Access-ordered, so the eldest entry is the least recently used
+    private final LinkedHashMap<UUID, String> names;
+    private final Map<String, UUID> ids = new HashMap<>();
+
+    public TakaroPlayerNameCache(TakaroPlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.maxEntries = Math.max(1, plugin.getConfig().getInt("takaro.players.name_cache_size", 10000));
+        this.names = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                ids.remove(eldest.getValue().toLowerCase(Locale.ROOT), eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Adds the online players and loads the server's user cache on the I/O executor.
+     * Must be called on the main thread.
+     */
+    public void load() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            put(player.getUniqueId(), player.getName());
+        }
+
+        File file = new File(Bukkit.getWorldContainer(), USER_CACHE_FILE);
+        try {
+            plugin.getIoExecutor().execute(() -> loadUserCache(file));
+        } catch (RejectedExecutionException e) {
+            // Plugin is disabling
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        put(event.getPlayer().getUniqueId(), event.getPlayer().getName());
+    }
+
+    /**
+     * Records the current name of a player, replacing a previous name.
+     */
+    public synchronized void put(UUID uuid, String name) {
+        if (uuid == null || name == null) {
+            return;
+        }
+        String previous = names.put(uuid, name);
+        if (previous != null && !previous.equalsIgnoreCase(name)) {
+            ids.remove(previous.toLowerCase(Locale.ROOT), uuid);
+        }
+        ids.put(name.toLowerCase(Locale.ROOT), uuid);
+    }
+
+    /**
+     * @return The last known name of the player, or null if the player isn't cached
+     */
+    public synchronized String getName(UUID uuid) {
+        return names.get(uuid);
+    }
+
+    /**
+     * @return The UUID of the player with this name (case insensitive), or null if not cached
+     */
+    public synchronized UUID getUniqueId(String name) {
+        UUID uuid = ids.get(name.toLowerCase(Locale.ROOT));
+        if (uuid != null) {
+            // Touch the entry so lookups by name also count as use
+            names.get(uuid);
+        }
+        return uuid;
+    }
+
+    /**
+     * Resolves the name of a player who may be offline. A cached name is passed to the
+     * callback right away on the calling thread. Otherwise the name is looked up with
+     * Bukkit.getOfflinePlayer on the I/O executor, cached, and passed to the callback
+     * on that thread.
+     *
+     * @param uuid The player UUID
+     * @param callback Receives the name, or null if the server doesn't know the player
+     */
+    public void resolveName(UUID uuid, Consumer<String> callback) {
+        String cached = getName(uuid);
+        if (cached != null) {
+            callback.accept(cached);
+            return;
+        }
+
+        Runnable lookup = () -> {
+            String name = Bukkit.getOfflinePlayer(uuid).getName();
+            put(uuid, name);
+            callback.accept(name);
+        };
+        ExecutorService executor = plugin.getIoExecutor();
+        try {
+            if (executor != null) {
+                executor.execute(lookup);
+                return;
+            }
+        } catch (RejectedExecutionException e) {
+            // Plugin is disabling
+        }
+        lookup.run();
+    }
+
+    /**
+     * Resolves the names of several players who may be offline, for callers that need all of them
+     * before they continue. Cached names are read right away, the others are looked up together on
+     * the I/O executor and cached. The callback runs on the calling thread if every name was cached,
+     * otherwise on the I/O executor.
+     *
+     * @param uuids The player UUIDs
+     * @param callback Receives the name of each player, null for players the server doesn't know
+     */
+    public void resolveNames(Collection<UUID> uuids, Consumer<Map<UUID, String>> callback) {
+        Map<UUID, String> resolved = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            String cached = getName(uuid);
+            if (cached != null) {
+                resolved.put(uuid, cached);
+            } else {
+                missing.add(uuid);
+            }
+        }
+        if (missing.isEmpty()) {
+            callback.accept(resolved);
+            return;
+        }
+
+        Runnable lookup = () -> {
+            for (UUID uuid : missing) {
+                String name = Bukkit.getOfflinePlayer(uuid).getName();
+                put(uuid, name);
+                resolved.put(uuid, name);
+            }
+            callback.accept(resolved);
+        };
+        ExecutorService executor = plugin.getIoExecutor();
+        try {
+            if (executor != null) {
+                executor.execute(lookup);
+                return;
+            }
+        } catch (RejectedExecutionException e) {
+            // Plugin is disabling
+        }
+        lookup.run();
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    private void loadUserCache(File file) {
+        if (!file.isFile()) {
+            logger.info("No " + USER_CACHE_FILE + " found, player names are cached as players join");
+            return;
+        }
+
+        int loaded = 0;
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            JsonElement root = JsonParser.parseReader(reader);
+            if (!root.isJsonArray()) {
+                return;
+            }
+
+            JsonArray entries = root.getAsJsonArray();
+            for (JsonElement element : entries) {
+                if (!element.isJsonObject()) {
+                    continue;
+                }
+                JsonObject entry = element.getAsJsonObject();
+                if (!entry.has("uuid") || !entry.has("name")) {
+                    continue;
+                }
+                try {
+                    UUID uuid = UUID.fromString(entry.get("uuid").getAsString());
+                    synchronized (this) {
+                        // Players who joined while the file was read have a newer name
+                        if (!names.containsKey(uuid)) {
+                            put(uuid, entry.get("name").getAsString());
+                            loaded++;
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Skip malformed entries
+                }
+            }
+            logger.info("Loaded " + loaded + " player names from " + USER_CACHE_FILE);
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Failed to load " + USER_CACHE_FILE + ": " + e.getMessage());
+        }
+    }
+}
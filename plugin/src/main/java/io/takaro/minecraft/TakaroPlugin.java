@@ -2,19 +2,48 @@ package io.takaro.minecraft;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.Logger;
-import org.bukkit.Bukkit;
+import org.apache.logging.log4j.core.LoggerContext;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 
+import java.io.File;
 import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class TakaroPlugin extends JavaPlugin {
     
     private TakaroWebSocketClient webSocketClient;
-    private TakaroEventListener eventListener;
+    private TakaroWebSocketClient telemetryClient;
+    private TakaroEventModules eventModules;
     private TakaroLogFilter logFilter;
+    private TakaroTickSampler tickSampler;
+    private TakaroProfiler profiler;
+    private TakaroDimensionRegistry dimensionRegistry;
+    private TakaroEntityCatalog entityCatalog;
+    private TakaroLocationStore locationStore;
+    private TakaroPlayerNameCache playerNameCache;
+    private TakaroMetricsEndpoint metricsEndpoint;
+    private TakaroLoadGovernor loadGovernor;
+    private TakaroLoadSimulator loadSimulator;
+    private volatile ExecutorService ioExecutor;
+    private final TakaroFrameBuffers frameBuffers = new TakaroFrameBuffers();
     private boolean shuttingDown = false;
 
+    public TakaroPlugin() {
+        super();
+    }
+
+    /**
+     * Creates the plugin outside a server's plugin class loader, for running it headless in tests.
+     */
+    protected TakaroPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
+
     @Override
     public void onEnable() {
         getLogger().info("Takaro Minecraft Plugin has been enabled!");
@@ -22,17 +51,49 @@ public class TakaroPlugin extends JavaPlugin {
         saveDefaultConfig();
         loadConfiguration();
         
+        profiler = new TakaroProfiler(this);
+        
+        // Plugin-owned virtual threads for I/O, so we don't compete for Bukkit's shared async pool
+        ioExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Takaro-IO-", 0).factory());
+        
+        // Attach the log filter first so lines logged during startup are buffered until Takaro is authenticated
+        initializeLogFilter();
+        
+        dimensionRegistry = new TakaroDimensionRegistry(this);
+        dimensionRegistry.rebuild();
+        getServer().getPluginManager().registerEvents(dimensionRegistry, this);
+        
+        entityCatalog = new TakaroEntityCatalog(this);
+        entityCatalog.start();
+        
+        locationStore = new TakaroLocationStore(this);
+        locationStore.load();
+        getServer().getPluginManager().registerEvents(locationStore, this);
         
-        // Initialize event listener
-        eventListener = new TakaroEventListener(this);
-        getServer().getPluginManager().registerEvents(eventListener, this);
+        playerNameCache = new TakaroPlayerNameCache(this);
+        playerNameCache.load();
+        getServer().getPluginManager().registerEvents(playerNameCache, this);
+        
+        // Register the game events enabled under takaro.events
+        eventModules = new TakaroEventModules(this);
+        eventModules.apply();
+        
+        tickSampler = new TakaroTickSampler(this);
+        tickSampler.start();
+        
+        loadGovernor = new TakaroLoadGovernor(this);
+        loadGovernor.start();
+        
+        loadSimulator = new TakaroLoadSimulator(this);
+        
+        TakaroCommand command = new TakaroCommand(this);
+        getCommand("takaro").setExecutor(command);
+        getCommand("takaro").setTabCompleter(command);
         
         initializeWebSocketConnection();
         
-        // Initialize log filter after a delay to ensure WebSocket is connected
-        getServer().getScheduler().runTaskLater(this, () -> {
-            initializeLogFilter();
-        }, 100L); // 5 second delay
+        metricsEndpoint = new TakaroMetricsEndpoint(this);
+        metricsEndpoint.start();
     }
 
     @Override
@@ -40,9 +101,12 @@ public class TakaroPlugin extends JavaPlugin {
         getLogger().info("Takaro Minecraft Plugin has been disabled!");
         shuttingDown = true;
         
-        // Stop log filter
+        // Detach and stop log filter
         if (logFilter != null) {
             try {
+                // addFilter on the root logger put it on the root LoggerConfig, which outlives this plugin
+                ((LoggerContext) LogManager.getContext(false)).getConfiguration().getRootLogger()
+                        .removeFilter(logFilter);
                 logFilter.stop();
                 logFilter = null;
                 getLogger().info("Log filter stopped");
@@ -51,21 +115,64 @@ public class TakaroPlugin extends JavaPlugin {
             }
         }
         
+        if (metricsEndpoint != null) {
+            metricsEndpoint.stop();
+            metricsEndpoint = null;
+        }
+        
+        if (loadSimulator != null) {
+            loadSimulator.stop();
+        }
+        
+        if (entityCatalog != null) {
+            entityCatalog.stop();
+        }
+        
+        if (loadGovernor != null) {
+            loadGovernor.stop();
+            loadGovernor = null;
+        }
+        
+        if (tickSampler != null) {
+            tickSampler.stop();
+            tickSampler = null;
+        }
+        
+        if (telemetryClient != null) {
+            telemetryClient.shutdown();
+            telemetryClient = null;
+        }
+        
         if (webSocketClient != null) {
             webSocketClient.shutdown();
             webSocketClient = null;
         }
+        
+        if (ioExecutor != null) {
+            ioExecutor.shutdown();
+            try {
+                if (!ioExecutor.awaitTermination(2, TimeUnit.SECONDS)) {
+                    ioExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                ioExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            ioExecutor = null;
+        }
     }
 
     private void initializeLogFilter() {
         try {
+            // The filter is always attached: it also captures command output for executeConsoleCommand
+            // and checks forward_server_logs itself, so forwarding can be toggled without a restart
+            logFilter = new TakaroLogFilter(this);
+            logFilter.start();
+            
+            Logger rootLogger = (Logger) LogManager.getRootLogger();
+            rootLogger.addFilter(logFilter);
+            
             if (getConfig().getBoolean("takaro.logging.forward_server_logs", true)) {
-                logFilter = new TakaroLogFilter(this);
-                logFilter.start();
-                
-                Logger rootLogger = (Logger) LogManager.getRootLogger();
-                rootLogger.addFilter(logFilter);
-                
                 getLogger().info("Log filter initialized - server logs will be forwarded to Takaro");
             } else {
                 getLogger().info("Server log forwarding is disabled in config");
@@ -104,18 +211,13 @@ public class TakaroPlugin extends JavaPlugin {
         try {
             URI serverUri = new URI(url);
             webSocketClient = new TakaroWebSocketClient(this, serverUri, identityToken, registrationToken);
+            connect(webSocketClient, url);
             
-            Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
-                try {
-                    webSocketClient.connect();
-                    getLogger().info("Connecting to Takaro WebSocket: " + url);
-                } catch (Exception e) {
-                    getLogger().severe("Failed to connect to Takaro WebSocket: " + e.getMessage());
-                    if (getConfig().getBoolean("takaro.logging.debug", false)) {
-                        e.printStackTrace();
-                    }
-                }
-            });
+            if (getConfig().getBoolean("takaro.websocket.dual_connection.enabled", false)) {
+                telemetryClient = new TakaroWebSocketClient(this, serverUri, identityToken, registrationToken,
+                        TakaroWebSocketClient.Role.TELEMETRY);
+                connect(telemetryClient, url);
+            }
             
         } catch (Exception e) {
             getLogger().severe("Failed to initialize WebSocket connection: " + e.getMessage());
@@ -125,6 +227,21 @@ public class TakaroPlugin extends JavaPlugin {
         }
     }
     
+    private void connect(TakaroWebSocketClient client, String url) {
+        ioExecutor.execute(() -> {
+            try {
+                client.connect();
+                getLogger().info("Connecting to Takaro WebSocket" + (client.getRole() == TakaroWebSocketClient.Role.TELEMETRY
+                        ? " (telemetry)" : "") + ": " + url);
+            } catch (Exception e) {
+                getLogger().severe("Failed to connect to Takaro WebSocket: " + e.getMessage());
+                if (getConfig().getBoolean("takaro.logging.debug", false)) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+    
     public boolean isShuttingDown() {
         return shuttingDown;
     }
@@ -132,4 +249,68 @@ public class TakaroPlugin extends JavaPlugin {
     public TakaroWebSocketClient getWebSocketClient() {
         return webSocketClient;
     }
+    
+    /**
+     * Returns the connection game events and logs should be sent on: the telemetry connection
+     * while it is authenticated, otherwise the control connection.
+     */
+    public TakaroWebSocketClient getEventClient() {
+        TakaroWebSocketClient telemetry = telemetryClient;
+        if (telemetry != null && telemetry.isAuthenticated()) {
+            return telemetry;
+        }
+        return webSocketClient;
+    }
+    
+    public TakaroWebSocketClient getTelemetryClient() {
+        return telemetryClient;
+    }
+    
+    public TakaroLogFilter getLogFilter() {
+        return logFilter;
+    }
+    
+    public TakaroTickSampler getTickSampler() {
+        return tickSampler;
+    }
+    
+    public TakaroLoadGovernor getLoadGovernor() {
+        return loadGovernor;
+    }
+    
+    public TakaroEventModules getEventModules() {
+        return eventModules;
+    }
+    
+    public TakaroLoadSimulator getLoadSimulator() {
+        return loadSimulator;
+    }
+    
+    public TakaroProfiler getProfiler() {
+        return profiler;
+    }
+    
+    public ExecutorService getIoExecutor() {
+        return ioExecutor;
+    }
+    
+    public TakaroFrameBuffers getFrameBuffers() {
+        return frameBuffers;
+    }
+    
+    public TakaroDimensionRegistry getDimensionRegistry() {
+        return dimensionRegistry;
+    }
+    
+    public TakaroEntityCatalog getEntityCatalog() {
+        return entityCatalog;
+    }
+    
+    public TakaroLocationStore getLocationStore() {
+        return locationStore;
+    }
+    
+    public TakaroPlayerNameCache getPlayerNameCache() {
+        return playerNameCache;
+    }
 }
\ No newline at end of file
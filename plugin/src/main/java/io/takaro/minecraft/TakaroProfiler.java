@@ -0,0 +1,280 @@
+package io.takaro.minecraft;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Accounts for the main-thread time spent in Takaro's own code.
+ *
+ * Every plugin-owned main-thread section (event handlers, request tasks, the
+ * chat hop) is timed with System.nanoTime. Costs are tracked per section and
+ * per tick, so admins can check that Takaro is not what's causing lag. A
+ * warning is logged when a single section exceeds the configured threshold.
+ *
+ * When the JVM supports it, the bytes allocated by each section are measured
+ * too, from the main thread's allocation counter. A section that allocates
+ * more than its budget in one run logs a warning (at most once a minute per
+ * section), so a change that multiplies the garbage produced per chat line or
+ * per request shows up on a running server.
+ *
+ * Sections can nest: kicking, banning or teleporting a player and running a
+ * console command fire Bukkit events synchronously, so the handlers of those
+ * events run as sections inside the request task. Each section is recorded
+ * with its full time and allocation, including what nested sections used, but
+ * only the outermost one counts towards the per-tick cost, so nested time
+ * isn't counted twice. The allocation counter at the start of each open
+ * section is kept on a stack, so a nested section doesn't overwrite it.
+ *
+ * Sections are only recorded from the main thread, so the counters have a
+ * single writer and readers only need a consistent enough view for stats.
+ */
+public class TakaroProfiler {
+
+    /**
+     * Accumulated cost of one named section.
+     */
+    public static final class Section {
+        private final String name;
+        private volatile long count;
+        private volatile long totalNanos;
+        private volatile long maxNanos;
+        private volatile long totalBytes;
+        private volatile long maxBytes;
+        private volatile long overBudget;
+        private long lastBudgetWarning;
+
+        private Section(String name) {
+            this.name = name;
+        }
+
+        private void record(long nanos, long bytes) {
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+            totalBytes += bytes;
+            if (bytes > maxBytes) {
+                maxBytes = bytes;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @return Bytes allocated by all runs, 0 if allocation tracking is unavailable
+         */
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        /**
+         * @return Runs that allocated more than the section's budget
+         */
+        public long getOverBudgetCount() {
+            return overBudget;
+        }
+    }
+
+    private static final long BUDGET_WARNING_INTERVAL_MILLIS = 60_000;
+
+    private final Logger logger;
+    private final Map<String, Section> sections = new ConcurrentHashMap<>();
+    private final TakaroSampleWindow tickCost = new TakaroSampleWindow(1200);
+    private final long warnThresholdNanos;
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final long defaultBudgetBytes;
+    private final Map<String, Long> budgetBytes = new HashMap<>();
+    private long currentTickNanos = 0;
+    private volatile long totalNanos = 0;
+    private int depth = 0;
+    // Allocation counter at the start of each open section, indexed by depth
+    private long[] sectionStartBytes = new long[8];
+
+    /**
+     * @param plugin The Takaro plugin instance
+     */
+    public TakaroProfiler(TakaroPlugin plugin) {
+        this(plugin.getLogger(), plugin.getConfig());
+    }
+
+    /**
+     * @param logger Where threshold and budget warnings are logged
+     * @param config The configuration to read takaro.profiling from
+     */
+    TakaroProfiler(Logger logger, FileConfiguration config) {
+        this.logger = logger;
+        this.warnThresholdNanos = (long) (config.getDouble("takaro.profiling.warn_threshold_ms", 5.0) * 1_000_000);
+        this.defaultBudgetBytes = config.getLong("takaro.profiling.allocation_budget_kb", 256) * 1024;
+
+        ConfigurationSection budgets = config.getConfigurationSection("takaro.profiling.allocation_budgets");
+        if (budgets != null) {
+            for (String section : budgets.getKeys(false)) {
+                budgetBytes.put(section, budgets.getLong(section) * 1024);
+            }
+        }
+
+        this.threadBean = config.getBoolean("takaro.profiling.track_allocations", true)
+                ? allocationCounter() : null;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+        } catch (UnsupportedOperationException | LinkageError e) {
+            // JVM without the com.sun.management extensions
+        }
+        return null;
+    }
+
+    /**
+     * Marks the start of a main-thread section.
+     *
+     * @return The start timestamp to pass to {@link #end(String, long)}
+     */
+    public long begin() {
+        if (threadBean != null) {
+            if (depth == sectionStartBytes.length) {
+                sectionStartBytes = Arrays.copyOf(sectionStartBytes, depth * 2);
+            }
+            sectionStartBytes[depth] = threadBean.getCurrentThreadAllocatedBytes();
+        }
+        depth++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a main-thread section that started at the given timestamp.
+     *
+     * @param name The section name
+     * @param startNanos The value returned by {@link #begin()}
+     */
+    public void end(String name, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        // An end without a matching begin counts as outermost, with no allocation measured
+        boolean open = depth > 0;
+        if (open) {
+            depth--;
+        }
+        long allocated = threadBean != null && open
+                ? Math.max(0, threadBean.getCurrentThreadAllocatedBytes() - sectionStartBytes[depth]) : 0;
+        Section section = sections.computeIfAbsent(name, Section::new);
+        section.record(elapsed, allocated);
+        if (depth == 0) {
+            currentTickNanos += elapsed;
+            totalNanos += elapsed;
+        }
+
+        if (warnThresholdNanos > 0 && elapsed > warnThresholdNanos) {
+            logger.warning(String.format("Takaro task '%s' took %.2fms on the main thread", name, elapsed / 1e6));
+        }
+
+        long budget = budgetBytes.getOrDefault(name, defaultBudgetBytes);
+        if (budget > 0 && allocated > budget) {
+            section.overBudget++;
+            long now = System.currentTimeMillis();
+            if (now - section.lastBudgetWarning >= BUDGET_WARNING_INTERVAL_MILLIS) {
+                section.lastBudgetWarning = now;
+                logger.warning(String.format("Takaro task '%s' allocated %dKB, over its %dKB budget",
+                        name, allocated / 1024, budget / 1024));
+            }
+        }
+    }
+
+    /**
+     * @return Whether per-section allocated bytes are measured
+     */
+    public boolean isTrackingAllocations() {
+        return threadBean != null;
+    }
+
+    /**
+     * Wraps a main-thread task so its execution time is recorded.
+     *
+     * @param name The section name
+     * @param task The task to run
+     * @return The timed task
+     */
+    public Runnable wrap(String name, Runnable task) {
+        return () -> {
+            long start = begin();
+            try {
+                task.run();
+            } finally {
+                end(name, start);
+            }
+        };
+    }
+
+    /**
+     * Closes the current tick. Called once per tick by the tick sampler.
+     */
+    public void onTick() {
+        tickCost.record(currentTickNanos);
+        currentTickNanos = 0;
+    }
+
+    /**
+     * @return Per-tick Takaro main-thread cost samples in nanoseconds
+     */
+    public TakaroSampleWindow getTickCost() {
+        return tickCost;
+    }
+
+    /**
+     * @return Total main-thread time used by Takaro since startup in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns the sections with the highest cumulative cost.
+     *
+     * @param limit Maximum number of sections to return
+     * @return Sections sorted by total time, most expensive first
+     */
+    public List<Section> getTopSections(int limit) {
+        List<Section> sorted = new ArrayList<>(sections.values());
+        sorted.sort(Comparator.comparingLong(Section::getTotalNanos).reversed());
+        return sorted.size() > limit ? sorted.subList(0, limit) : sorted;
+    }
+
+    /**
+     * @return All recorded sections
+     */
+    public List<Section> getSections() {
+        return new ArrayList<>(sections.values());
+    }
+}
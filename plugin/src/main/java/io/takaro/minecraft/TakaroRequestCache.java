@@ -0,0 +1,141 @@
+package io.takaro.minecraft;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, time-expiring cache of request IDs and their serialized responses.
+ *
+ * Takaro retries a request when its response is lost. For actions that change
+ * game state (giving items, banning, ...) running the request twice has visible
+ * side effects, so completed requests are remembered here and a retry is
+ * answered from the cache without touching the main thread. A retry that
+ * arrives while the original is still running joins it: the original's
+ * response carries the same requestId and answers both.
+ */
+public class TakaroRequestCache {
+
+    /**
+     * Result of registering a request with the cache.
+     */
+    public enum Status {
+        /** First time this requestId is seen, the caller should run it */
+        NEW,
+        /** The same requestId is still running, its response will answer this one too */
+        IN_FLIGHT,
+        /** The requestId already completed, the cached response should be sent */
+        COMPLETED
+    }
+
+    private static final class Entry {
+        private final long createdAt;
+        private String response;
+
+        private Entry(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * @param ttlMillis How long completed and in-flight entries are remembered
+     * @param maxEntries Maximum number of entries, oldest are evicted first
+     */
+    public TakaroRequestCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > TakaroRequestCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Registers a request. Returns NEW if the caller should execute it.
+     *
+     * @param requestId The request ID
+     * @return The status of the request in the cache
+     */
+    public synchronized Status begin(String requestId) {
+        long now = System.currentTimeMillis();
+        expire(now);
+
+        Entry entry = entries.get(requestId);
+        if (entry == null) {
+            entries.put(requestId, new Entry(now));
+            return Status.NEW;
+        }
+        return entry.response != null ? Status.COMPLETED : Status.IN_FLIGHT;
+    }
+
+    /**
+     * Returns the cached serialized response for a completed request.
+     *
+     * @param requestId The request ID
+     * @return The serialized response, or null if not completed
+     */
+    public synchronized String getResponse(String requestId) {
+        Entry entry = entries.get(requestId);
+        return entry != null ? entry.response : null;
+    }
+
+    /**
+     * Stores the serialized response of a request registered with begin().
+     * Responses for requests that were never registered are ignored.
+     *
+     * @param requestId The request ID
+     * @param response The serialized response frame
+     */
+    public synchronized void complete(String requestId, String response) {
+        Entry entry = entries.get(requestId);
+        if (entry != null && entry.response == null) {
+            entry.response = response;
+        }
+    }
+
+    /**
+     * Forgets an in-flight request so a retry runs it again. Used when the
+     * request failed before changing anything.
+     *
+     * @param requestId The request ID
+     */
+    public synchronized void abandon(String requestId) {
+        Entry entry = entries.get(requestId);
+        if (entry != null && entry.response == null) {
+            entries.remove(requestId);
+        }
+    }
+
+    /**
+     * @return Whether the request is registered and still waiting for its response
+     */
+    public synchronized boolean isInFlight(String requestId) {
+        Entry entry = entries.get(requestId);
+        return entry != null && entry.response == null;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private void expire(long now) {
+        // Entries are in insertion order, so expired ones are at the head
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().createdAt <= ttlMillis) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+}
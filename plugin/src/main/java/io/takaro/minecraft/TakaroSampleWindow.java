@@ -0,0 +1,116 @@
+package io.takaro.minecraft;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size rolling window of long samples (latencies, tick durations, ...).
+ *
+ * Recording is a single array write so it can be called from hot paths.
+ * Percentiles are computed on demand from a copy of the window, which is
+ * cheap enough for stats output and periodic reporting.
+ */
+public class TakaroSampleWindow {
+
+    private final long[] samples;
+    private int next = 0;
+    private int count = 0;
+    private long total = 0;
+
+    /**
+     * Creates a window that keeps the most recent samples.
+     *
+     * @param capacity Number of samples to keep
+     */
+    public TakaroSampleWindow(int capacity) {
+        this.samples = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * Records a sample, overwriting the oldest one once the window is full.
+     *
+     * @param value The sample value
+     */
+    public synchronized void record(long value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        total++;
+    }
+
+    /**
+     * Returns the given percentile of the samples in the window.
+     *
+     * @param percentile Percentile between 0 and 100
+     * @return The sample at that percentile, or -1 if the window is empty
+     */
+    public long percentile(double percentile) {
+        long[] sorted = snapshot();
+        if (sorted.length == 0) {
+            return -1;
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * @return The largest sample in the window, or -1 if empty
+     */
+    public long max() {
+        long[] values = snapshot();
+        long max = -1;
+        for (long value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * @return The average of the samples in the window, or -1 if empty
+     */
+    public synchronized double mean() {
+        if (count == 0) {
+            return -1;
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return (double) sum / count;
+    }
+
+    /**
+     * @return The most recent sample, or -1 if empty
+     */
+    public synchronized long last() {
+        if (count == 0) {
+            return -1;
+        }
+        return samples[(next - 1 + samples.length) % samples.length];
+    }
+
+    /**
+     * @return Number of samples currently in the window
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @return Number of samples recorded since creation
+     */
+    public synchronized long totalRecorded() {
+        return total;
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        count = 0;
+    }
+
+    private synchronized long[] snapshot() {
+        return Arrays.copyOf(samples, count);
+    }
+}
@@ -0,0 +1,235 @@
+package io.takaro.minecraft;
+
+import com.google.gson.JsonObject;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Measures server tick timing and reports server health to Takaro.
+ *
+ * A task runs on the main thread every tick and records the time since the
+ * previous tick. The Bukkit API doesn't expose the time spent inside a tick,
+ * so the tick interval is used as MSPT: it is 50ms on a healthy server and
+ * grows with the tick duration once the server falls behind.
+ *
+ * A separate reporter thread periodically sends a compact server-metrics game
+ * event with TPS, MSPT percentiles, heap, GC and thread counts.
+ */
+public class TakaroTickSampler {
+
+    private static final List<String> DEFAULT_FIELDS = List.of("tps", "mspt", "heap", "gc", "threads", "rtt");
+
+    private final TakaroPlugin plugin;
+    private final Logger logger;
+    private final TakaroSampleWindow tickIntervals;
+    private final long reportInterval;
+    private final Set<String> fields;
+
+    private BukkitTask tickTask;
+    private ScheduledExecutorService reporter;
+    private long lastTickAt = 0;
+    private long lastGcCount = -1;
+    private long lastGcTime = -1;
+
+    // Smoothed tick interval over roughly the last second, for the load governor
+    private volatile double recentMspt = 50.0;
+    private volatile int reportIntervalMultiplier = 1;
+    private long reportRuns = 0;
+
+    /**
+     * Creates a sampler using the takaro.metrics configuration.
+     *
+     * @param plugin The Takaro plugin instance
+     */
+    public TakaroTickSampler(TakaroPlugin plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.reportInterval = Math.max(1, plugin.getConfig().getLong("takaro.metrics.interval", 30));
+
+        // Keep one report interval worth of ticks, at 20 ticks per second
+        this.tickIntervals = new TakaroSampleWindow((int) Math.min(72000, reportInterval * 20));
+
+        List<String> configured = plugin.getConfig().getStringList("takaro.metrics.fields");
+        this.fields = new HashSet<>(configured == null || configured.isEmpty() ? DEFAULT_FIELDS : configured);
+    }
+
+    /**
+     * Starts the per-tick sampling task and, if enabled, the periodic reporter.
+     */
+    public void start() {
+        tickTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::onTick, 1L, 1L);
+
+        if (plugin.getConfig().getBoolean("takaro.metrics.enabled", true)) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Takaro-Metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(this::report, reportInterval, reportInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    private void onTick() {
+        long now = System.nanoTime();
+        if (lastTickAt != 0) {
+            long interval = now - lastTickAt;
+            tickIntervals.record(interval);
+            recentMspt += (interval / 1e6 - recentMspt) * 0.05;
+        }
+        lastTickAt = now;
+        
+        TakaroProfiler profiler = plugin.getProfiler();
+        if (profiler != null) {
+            profiler.onTick();
+        }
+    }
+
+    /**
+     * @return Ticks per second over the sample window, capped at 20
+     */
+    public double getTps() {
+        double meanInterval = tickIntervals.mean();
+        if (meanInterval <= 0) {
+            return 20.0;
+        }
+        return Math.min(20.0, 1e9 / meanInterval);
+    }
+
+    /**
+     * @return Tick interval in milliseconds, smoothed over roughly the last 20 ticks
+     */
+    public double getRecentMspt() {
+        return recentMspt;
+    }
+
+    /**
+     * Reports server-metrics only every n-th interval. Used by the load governor.
+     *
+     * @param multiplier How many report intervals to wait between reports
+     */
+    public void setReportIntervalMultiplier(int multiplier) {
+        this.reportIntervalMultiplier = Math.max(1, multiplier);
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100
+     * @return Milliseconds per tick at that percentile, or -1 without samples
+     */
+    public double getMspt(double percentile) {
+        long value = tickIntervals.percentile(percentile);
+        return value < 0 ? -1 : value / 1e6;
+    }
+
+    /**
+     * @return Longest tick in the sample window in milliseconds, or -1 without samples
+     */
+    public double getMaxMspt() {
+        long value = tickIntervals.max();
+        return value < 0 ? -1 : value / 1e6;
+    }
+
+    /**
+     * Builds the server-metrics event data with the configured fields.
+     *
+     * @return The metrics object
+     */
+    public JsonObject collectMetrics() {
+        JsonObject data = new JsonObject();
+
+        if (fields.contains("tps")) {
+            data.addProperty("tps", round(getTps()));
+        }
+
+        if (fields.contains("mspt")) {
+            JsonObject mspt = new JsonObject();
+            mspt.addProperty("p50", round(getMspt(50)));
+            mspt.addProperty("p95", round(getMspt(95)));
+            mspt.addProperty("max", round(getMaxMspt()));
+            data.add("mspt", mspt);
+        }
+
+        if (fields.contains("heap")) {
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            JsonObject heapObj = new JsonObject();
+            heapObj.addProperty("usedMb", heap.getUsed() / (1024 * 1024));
+            heapObj.addProperty("committedMb", heap.getCommitted() / (1024 * 1024));
+            heapObj.addProperty("maxMb", heap.getMax() / (1024 * 1024));
+            data.add("heap", heapObj);
+        }
+
+        if (fields.contains("gc")) {
+            long count = 0;
+            long time = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                time += Math.max(0, gc.getCollectionTime());
+            }
+
+            // Report collections since the previous report
+            JsonObject gcObj = new JsonObject();
+            gcObj.addProperty("collections", lastGcCount < 0 ? 0 : count - lastGcCount);
+            gcObj.addProperty("pauseMs", lastGcTime < 0 ? 0 : time - lastGcTime);
+            data.add("gc", gcObj);
+            lastGcCount = count;
+            lastGcTime = time;
+        }
+
+        if (fields.contains("threads")) {
+            data.addProperty("threads", ManagementFactory.getThreadMXBean().getThreadCount());
+        }
+
+        if (fields.contains("rtt")) {
+            TakaroWebSocketClient client = plugin.getWebSocketClient();
+            if (client != null && client.getRttSamples().size() > 0) {
+                JsonObject rtt = new JsonObject();
+                rtt.addProperty("p50", round(client.getRttSamples().percentile(50) / 1e6));
+                rtt.addProperty("p95", round(client.getRttSamples().percentile(95) / 1e6));
+                data.add("rttMs", rtt);
+            }
+        }
+
+        return data;
+    }
+
+    private void report() {
+        if (reportRuns++ % reportIntervalMultiplier != 0) {
+            return;
+        }
+        try {
+            TakaroWebSocketClient client = plugin.getEventClient();
+            if (client == null || !client.isAuthenticated()) {
+                return;
+            }
+            client.sendGameEvent("server-metrics", collectMetrics());
+        } catch (Exception e) {
+            if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
+                logger.warning("Failed to report server metrics: " + e.getMessage());
+            }
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
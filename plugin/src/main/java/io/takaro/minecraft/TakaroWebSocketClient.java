@@ -2,31 +2,70 @@ package io.takaro.minecraft;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
+import io.takaro.minecraft.TakaroConnectionState.State;
 import org.bukkit.Bukkit;
 import org.bukkit.BanList;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.World;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitTask;
+import org.java_websocket.WebSocket;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ServerHandshake;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 public class TakaroWebSocketClient extends WebSocketClient {
     
+    /**
+     * What a connection carries. With a single connection the control connection carries
+     * everything; in dual-connection mode game events and logs move to a telemetry connection
+     * so a burst of them can't delay responses behind it on the same TCP stream.
+     */
+    public enum Role {
+        CONTROL,
+        TELEMETRY
+    }
+    
     private final TakaroPlugin plugin;
     private final Logger logger;
     private final Gson gson;
@@ -34,39 +73,153 @@ public class TakaroWebSocketClient extends WebSocketClient {
     private String identityToken;
     private String registrationToken;
     
-    private boolean authenticated = false;
-    private boolean reconnectEnabled = true;
-    private int reconnectAttempts = 0;
-    private long reconnectDelay = 5000;
-    private final long maxReconnectDelay = 300000;
-    private final double backoffMultiplier = 2.0;
-    private final int maxReconnectAttempts = -1;
+    private final Role role;
+    // Connection lifecycle, read from the main, chat and log threads through isAuthenticated()
+    private final TakaroConnectionState state = new TakaroConnectionState();
+    private volatile boolean reconnectEnabled;
+    private volatile int reconnectAttempts = 0;
+    private volatile long reconnectDelay;
+    private final long initialReconnectDelay;
+    private final long firstRetryDelay;
+    private final long maxReconnectDelay;
+    private final double backoffMultiplier;
+    private final int maxReconnectAttempts;
+    private final boolean reconnectJitter;
+    
+    // Reconnects and heartbeats run on a dedicated timer thread so server lag can't delay them
+    private final ScheduledExecutorService connectionScheduler;
+    private ScheduledFuture<?> reconnectTask;
+    private volatile long nextReconnectAt = 0;
+    
+    private final boolean heartbeatEnabled;
+    private final long heartbeatInterval;
+    private final int heartbeatMaxMissed;
+    private ScheduledFuture<?> heartbeatTask;
+    private volatile long pingSentAt = 0;
+    private volatile boolean awaitingPong = false;
+    private volatile int missedPongs = 0;
+    private final TakaroSampleWindow rttSamples = new TakaroSampleWindow(256);
+    
+    private final ThreadLocal<BatchCollector> activeBatch = new ThreadLocal<>();
+    
+    // Actions that change game state and must not run twice when Takaro retries them
+    private static final Set<String> IDEMPOTENT_ACTIONS = Set.of(
+        "sendMessage", "giveItem", "giveItems", "executeConsoleCommand", "kickPlayer",
+        "banPlayer", "unbanPlayer", "shutdown", "teleportPlayer"
+    );
     
-    private BukkitTask reconnectTask;
+    private final TakaroRequestCache requestCache;
+    
+    private final Queue<PendingGive> pendingGives = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean giveFlushScheduled = new AtomicBoolean(false);
+    
+    private final Queue<OutboundMessage> outboundQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final TakaroSampleWindow sendLatency = new TakaroSampleWindow(1024);
+    
+    // Traffic counters and per-action request latency for the metrics endpoint
+    private static final int MAX_TIMED_ACTIONS = 64;
+    private static final int MAX_PENDING_TIMINGS = 10000;
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final Map<String, TakaroHistogram> actionLatency = new ConcurrentHashMap<>();
+    private final Map<String, RequestTiming> pendingTimings = new ConcurrentHashMap<>();
+    
+    // Telemetry only: consecutive connections closed before authenticating, and whether the
+    // backend was found to refuse a second connection
+    private final int rejectAfter;
+    private int unauthenticatedCloses = 0;
+    private volatile boolean rejected = false;
     
     public TakaroWebSocketClient(TakaroPlugin plugin, URI serverUri, String identityToken, String registrationToken) {
+        this(plugin, serverUri, identityToken, registrationToken, Role.CONTROL);
+    }
+    
+    public TakaroWebSocketClient(TakaroPlugin plugin, URI serverUri, String identityToken, String registrationToken, Role role) {
         super(serverUri);
         this.plugin = plugin;
+        this.role = role;
         this.logger = plugin.getLogger();
         this.gson = new Gson();
         this.identityToken = identityToken;
         this.registrationToken = registrationToken;
         
+        FileConfiguration config = plugin.getConfig();
+        this.reconnectEnabled = config.getBoolean("takaro.websocket.reconnect.enabled", true);
+        this.initialReconnectDelay = Math.max(100, config.getLong("takaro.websocket.reconnect.initial_delay", 5000));
+        this.firstRetryDelay = Math.max(0, config.getLong("takaro.websocket.reconnect.first_retry_delay", 1000));
+        this.maxReconnectDelay = Math.max(initialReconnectDelay, config.getLong("takaro.websocket.reconnect.max_delay", 300000));
+        this.backoffMultiplier = Math.max(1.0, config.getDouble("takaro.websocket.reconnect.backoff_multiplier", 2.0));
+        this.maxReconnectAttempts = config.getInt("takaro.websocket.reconnect.max_attempts", -1);
+        this.reconnectJitter = config.getBoolean("takaro.websocket.reconnect.jitter", true);
+        this.reconnectDelay = initialReconnectDelay;
+        
+        this.requestCache = config.getBoolean("takaro.requests.idempotency.enabled", true)
+                ? new TakaroRequestCache(
+                        config.getLong("takaro.requests.idempotency.ttl", 300000),
+                        config.getInt("takaro.requests.idempotency.max_entries", 1000))
+                : null;
+        
+        this.heartbeatEnabled = config.getBoolean("takaro.websocket.heartbeat.enabled", true);
+        this.heartbeatInterval = Math.max(1000, config.getLong("takaro.websocket.heartbeat.interval", 10000));
+        this.heartbeatMaxMissed = Math.max(1, config.getInt("takaro.websocket.heartbeat.max_missed", 3));
+        this.rejectAfter = Math.max(1, config.getInt("takaro.websocket.dual_connection.fallback_after", 3));
+        
+        String threadName = role == Role.CONTROL ? "Takaro-Connection" : "Takaro-Connection-Telemetry";
+        this.connectionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        
         setTcpNoDelay(true);
+        
+        if (heartbeatEnabled) {
+            // Our own heartbeat replaces the library's lost-connection check
+            setConnectionLostTimeout(0);
+            heartbeatTask = connectionScheduler.scheduleAtFixedRate(this::heartbeat,
+                    heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+        }
+        
+        state.addListener((from, to, reason) -> {
+            if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
+                logger.info("Connection state" + describeRole() + ": " + from + " -> " + to + " (" + reason + ")");
+            }
+            if (to == State.READY) {
+                // Only a connection that got through identify counts as recovered, so a backend that
+                // accepts the socket and then drops it during identify keeps backing off
+                reconnectAttempts = 0;
+                reconnectDelay = initialReconnectDelay;
+                onAuthenticated();
+            }
+        });
+    }
+    
+    @Override
+    public void connect() {
+        state.moveTo(State.CONNECTING, "connecting");
+        super.connect();
     }
     
     @Override
     public void onOpen(ServerHandshake handshake) {
-        logger.info("Connected to Takaro WebSocket server");
-        authenticated = false;
-        reconnectAttempts = 0;
-        reconnectDelay = 5000;
+        logger.info("Connected to Takaro WebSocket server" + describeRole());
+        state.moveTo(State.IDENTIFYING, "socket open");
+        awaitingPong = false;
+        missedPongs = 0;
         
         sendAuthenticationMessage();
     }
     
     @Override
     public void onMessage(String message) {
+        framesReceived.increment();
+        bytesReceived.add(utf8Length(message));
+        
         if (plugin.getConfig().getBoolean("takaro.logging.log_messages", false)) {
             logger.info("Received message: " + message);
         }
@@ -84,12 +237,24 @@ public class TakaroWebSocketClient extends WebSocketClient {
     
     @Override
     public void onClose(int code, String reason, boolean remote) {
-        logger.info(String.format("WebSocket connection closed. Code: %d, Reason: %s, Remote: %b", 
-                code, reason, remote));
-        authenticated = false;
+        logger.info(String.format("WebSocket connection closed%s. Code: %d, Reason: %s, Remote: %b", 
+                describeRole(), code, reason, remote));
+        boolean wasAuthenticated = state.isReady();
+        state.moveTo(State.BACKOFF, "closed with code " + code);
+        
+        if (role == Role.TELEMETRY && !rejected && !plugin.isShuttingDown()) {
+            // A backend that allows one connection per server drops the second one before it authenticates
+            unauthenticatedCloses = wasAuthenticated ? 0 : unauthenticatedCloses + 1;
+            if (unauthenticatedCloses >= rejectAfter) {
+                reject("closed " + unauthenticatedCloses + " times before authenticating");
+                return;
+            }
+        }
         
         if (reconnectEnabled && !plugin.isShuttingDown()) {
             scheduleReconnect();
+        } else {
+            state.moveTo(State.CLOSED, "closed with code " + code + ", not reconnecting");
         }
     }
     
@@ -101,6 +266,47 @@ public class TakaroWebSocketClient extends WebSocketClient {
         }
     }
     
+    @Override
+    public void onWebsocketPong(WebSocket conn, Framedata frame) {
+        super.onWebsocketPong(conn, frame);
+        if (awaitingPong) {
+            rttSamples.record(System.nanoTime() - pingSentAt);
+            awaitingPong = false;
+        }
+        missedPongs = 0;
+    }
+    
+    /**
+     * Sends a ping each heartbeat interval and closes the connection once too many pongs
+     * have been missed, so a half-open link is detected and reconnected quickly.
+     */
+    private void heartbeat() {
+        try {
+            if (!isOpen()) {
+                return;
+            }
+            
+            if (awaitingPong) {
+                missedPongs++;
+                if (missedPongs >= heartbeatMaxMissed) {
+                    logger.warning("No pong received for " + missedPongs + " heartbeats, connection is dead");
+                    awaitingPong = false;
+                    missedPongs = 0;
+                    closeConnection(CloseFrame.ABNORMAL_CLOSE, "Heartbeat timeout");
+                }
+                return;
+            }
+            
+            pingSentAt = System.nanoTime();
+            awaitingPong = true;
+            sendPing();
+        } catch (Exception e) {
+            if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
+                logger.warning("Heartbeat failed: " + e.getMessage());
+            }
+        }
+    }
+    
     private void sendAuthenticationMessage() {
         JsonObject payload = new JsonObject();
         payload.addProperty("identityToken", identityToken);
@@ -132,6 +338,9 @@ public class TakaroWebSocketClient extends WebSocketClient {
             case "request":
                 handleRequest(message);
                 break;
+            case "batchRequest":
+                handleBatchRequest(message);
+                break;
             default:
                 if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
                     logger.info("Received unknown message type: " + type);
@@ -159,6 +368,12 @@ public class TakaroWebSocketClient extends WebSocketClient {
                 String errorMessage = error.has("message") ? error.get("message").getAsString() : "Unknown error";
                 int httpCode = error.has("http") ? error.get("http").getAsInt() : 0;
                 
+                if (role == Role.TELEMETRY) {
+                    // The control connection authenticates with the same tokens, so this is a refusal of the second connection
+                    reject("identify failed: " + errorName + " - " + errorMessage);
+                    return;
+                }
+                
                 logger.severe("Authentication failed: " + errorName + " - " + errorMessage + " (HTTP " + httpCode + ")");
                 
                 if (httpCode == 401 || httpCode == 403) {
@@ -166,8 +381,8 @@ public class TakaroWebSocketClient extends WebSocketClient {
                     reconnectEnabled = false;
                 }
             } else {
-                authenticated = true;
-                logger.info("Successfully authenticated with Takaro");
+                logger.info("Successfully authenticated with Takaro" + describeRole());
+                state.moveTo(State.IDENTIFYING, State.READY, "identified");
                 
                 if (payload.has("server")) {
                     JsonObject serverInfo = payload.getAsJsonObject("server");
@@ -181,8 +396,8 @@ public class TakaroWebSocketClient extends WebSocketClient {
     }
     
     private void handleAuthenticated(JsonObject message) {
-        authenticated = true;
-        logger.info("Successfully authenticated with Takaro");
+        logger.info("Successfully authenticated with Takaro" + describeRole());
+        state.moveTo(State.IDENTIFYING, State.READY, "authenticated");
         
         if (message.has("serverInfo")) {
             JsonObject serverInfo = message.getAsJsonObject("serverInfo");
@@ -191,9 +406,22 @@ public class TakaroWebSocketClient extends WebSocketClient {
         }
     }
     
+    private void onAuthenticated() {
+        // Send the log lines that were buffered while no connection was authenticated
+        TakaroLogFilter logFilter = plugin.getLogFilter();
+        if (logFilter != null) {
+            logFilter.flushBuffered();
+        }
+    }
+    
     private void handleError(JsonObject message) {
         String error = message.has("message") ? message.get("message").getAsString() : "Unknown error";
-        logger.severe("Takaro error: " + error);
+        logger.severe("Takaro error" + describeRole() + ": " + error);
+        
+        if (role == Role.TELEMETRY && !state.isReady()) {
+            reject("error before authenticating: " + error);
+            return;
+        }
         
         if (message.has("code")) {
             int code = message.get("code").getAsInt();
@@ -216,6 +444,51 @@ public class TakaroWebSocketClient extends WebSocketClient {
         
         logger.info("Received request: " + action + " (ID: " + requestId + ")");
         
+        if (!beginRequest(requestId, action)) {
+            return;
+        }
+        
+        dispatchAction(requestId, action, message);
+    }
+    
+    /**
+     * Registers a state-changing request with the idempotency cache.
+     * Retries of completed requests are answered from the cache and retries of running
+     * requests are left to the original, whose response carries the same requestId.
+     *
+     * @return true if the request should be executed
+     */
+    private boolean beginRequest(String requestId, String action) {
+        if (requestCache == null || requestId == null || !IDEMPOTENT_ACTIONS.contains(action)) {
+            return true;
+        }
+        
+        switch (requestCache.begin(requestId)) {
+            case COMPLETED:
+                String cached = requestCache.getResponse(requestId);
+                if (cached == null) {
+                    return true;
+                }
+                logger.info("Answering retried request from cache: " + action + " (ID: " + requestId + ")");
+                sendSerialized(cached);
+                return false;
+            case IN_FLIGHT:
+                logger.info("Request already in progress, joining: " + action + " (ID: " + requestId + ")");
+                return false;
+            default:
+                return true;
+        }
+    }
+    
+    /**
+     * Routes a single request to its handler. Handlers answer through sendMessage/sendErrorResponse,
+     * which lets batched requests collect those answers instead of writing them to the socket.
+     */
+    private void dispatchAction(String requestId, String action, JsonObject message) {
+        if (requestId != null && pendingTimings.size() < MAX_PENDING_TIMINGS) {
+            pendingTimings.put(requestId, new RequestTiming(action));
+        }
+        
         // Route to specific handler based on action
         switch (action) {
             case "testReachability":
@@ -239,12 +512,21 @@ public class TakaroWebSocketClient extends WebSocketClient {
             case "listBans":
                 handleListBans(requestId);
                 break;
+            case "listEntities":
+                handleListEntities(requestId);
+                break;
+            case "listLocations":
+                handleListLocations(requestId);
+                break;
             case "sendMessage":
                 handleSendMessage(requestId, message);
                 break;
             case "giveItem":
                 handleGiveItem(requestId, message);
                 break;
+            case "giveItems":
+                handleGiveItems(requestId, message);
+                break;
             case "executeConsoleCommand":
                 handleExecuteConsoleCommand(requestId, message);
                 break;
@@ -275,6 +557,188 @@ public class TakaroWebSocketClient extends WebSocketClient {
         }
     }
     
+    /**
+     * Handles a batch of requests sent in a single frame. All entries run back to back in one
+     * main thread task and their responses are returned together in a single batchResponse frame.
+     * Each entry keeps its own requestId and its own payload or error. Entries that are retries
+     * of a request still running elsewhere are left out; the original answers them.
+     */
+    private void handleBatchRequest(JsonObject message) {
+        String batchId = message.has("requestId") ? message.get("requestId").getAsString() : null;
+        
+        JsonArray entries = null;
+        if (message.has("payload") && message.get("payload").isJsonObject()) {
+            JsonObject payload = message.getAsJsonObject("payload");
+            if (payload.has("requests") && payload.get("requests").isJsonArray()) {
+                entries = payload.getAsJsonArray("requests");
+            }
+        }
+        
+        if (entries == null) {
+            sendErrorResponse(batchId, "batchRequest payload must contain a requests array");
+            return;
+        }
+        
+        int maxEntries = plugin.getConfig().getInt("takaro.requests.batch.max_entries", 100);
+        if (entries.size() > maxEntries) {
+            sendErrorResponse(batchId, "Batch contains " + entries.size() + " requests, maximum is " + maxEntries);
+            return;
+        }
+        
+        logger.info("Received batch request with " + entries.size() + " entries (ID: " + batchId + ")");
+        
+        // Entries must answer inside the batch task, so names that would be looked up on the I/O
+        // executor are resolved before it starts
+        List<UUID> players = new ArrayList<>();
+        for (JsonElement entry : entries) {
+            UUID player = entry.isJsonObject() ? batchEntryPlayer(entry.getAsJsonObject()) : null;
+            if (player != null) {
+                players.add(player);
+            }
+        }
+        
+        final JsonArray batchEntries = entries;
+        plugin.getPlayerNameCache().resolveNames(players, names -> runBatch(batchId, batchEntries, names));
+    }
+    
+    private void runBatch(String batchId, JsonArray batchEntries, Map<UUID, String> names) {
+        Bukkit.getScheduler().runTask(plugin, plugin.getProfiler().wrap("batchRequest", () -> {
+            BatchCollector collector = new BatchCollector(names);
+            activeBatch.set(collector);
+            try {
+                for (int i = 0; i < batchEntries.size(); i++) {
+                    dispatchBatchEntry(collector, i, batchEntries.get(i));
+                }
+            } finally {
+                activeBatch.remove();
+            }
+            
+            JsonObject payload = new JsonObject();
+            payload.add("responses", collector.toJsonArray());
+            
+            JsonObject response = new JsonObject();
+            response.addProperty("type", "batchResponse");
+            if (batchId != null) {
+                response.addProperty("requestId", batchId);
+            }
+            response.add("payload", payload);
+            
+            logger.info("Responding to batch request with " + collector.size() + " responses");
+            sendMessage(response);
+        }));
+    }
+    
+    private void dispatchBatchEntry(BatchCollector collector, int index, JsonElement element) {
+        if (!element.isJsonObject()) {
+            collector.add(errorResponse(null, "Batch entry " + index + " is not an object"));
+            return;
+        }
+        
+        JsonObject entry = element.getAsJsonObject();
+        String requestId = primitiveString(entry, "requestId");
+        String action = primitiveString(entry, "action");
+        
+        if (requestId == null) {
+            collector.add(errorResponse(null, "Batch entry " + index + " is missing requestId"));
+            return;
+        }
+        if (action == null) {
+            collector.add(errorResponse(requestId, "Batch entry " + index + " is missing action"));
+            return;
+        }
+        
+        // Wrap the entry in the same shape as a standalone request so handlers parse it unchanged
+        JsonObject payload = new JsonObject();
+        payload.addProperty("action", action);
+        if (entry.has("args")) {
+            payload.add("args", entry.get("args"));
+        }
+        
+        JsonObject request = new JsonObject();
+        request.addProperty("type", "request");
+        request.addProperty("requestId", requestId);
+        request.add("payload", payload);
+        
+        if (requestCache != null && IDEMPOTENT_ACTIONS.contains(action)) {
+            TakaroRequestCache.Status status = requestCache.begin(requestId);
+            if (status == TakaroRequestCache.Status.COMPLETED) {
+                String cached = requestCache.getResponse(requestId);
+                if (cached != null) {
+                    collector.add(JsonParser.parseString(cached).getAsJsonObject());
+                    return;
+                }
+            } else if (status == TakaroRequestCache.Status.IN_FLIGHT) {
+                // The running original answers this requestId with its own response frame
+                logger.info("Batch entry already in progress, joining: " + action + " (ID: " + requestId + ")");
+                return;
+            }
+        }
+        
+        collector.expect(requestId);
+        try {
+            dispatchAction(requestId, action, request);
+        } catch (Exception e) {
+            logger.warning("Batch entry " + requestId + " (" + action + ") failed: " + e.getMessage());
+            sendErrorResponse(requestId, "Request failed: " + e.getMessage());
+        }
+        
+        if (!collector.hasResponse(requestId)) {
+            sendErrorResponse(requestId, "Action produced no response: " + action);
+        }
+    }
+    
+    /**
+     * @return The player a ban or unban batch entry needs the name of, or null for other entries
+     *         and malformed ones, which their handler reports
+     */
+    private UUID batchEntryPlayer(JsonObject entry) {
+        String action = primitiveString(entry, "action");
+        if (!"banPlayer".equals(action) && !"unbanPlayer".equals(action)) {
+            return null;
+        }
+        
+        JsonObject payload = new JsonObject();
+        if (entry.has("args")) {
+            payload.add("args", entry.get("args"));
+        }
+        JsonObject request = new JsonObject();
+        request.add("payload", payload);
+        
+        try {
+            JsonObject args = parseArgsFromMessage(request);
+            if (action.equals("banPlayer")) {
+                args = args.has("player") && args.get("player").isJsonObject() ? args.getAsJsonObject("player") : null;
+            }
+            String gameId = args != null ? primitiveString(args, "gameId") : null;
+            return gameId != null ? UUID.fromString(gameId) : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Resolves a player name for a request handler. Inside a batch the name was looked up before
+     * the batch task started, so the handler answers within the batch instead of after it was sent.
+     */
+    private void resolvePlayerName(UUID uuid, Consumer<String> callback) {
+        BatchCollector collector = activeBatch.get();
+        if (collector != null && collector.names.containsKey(uuid)) {
+            callback.accept(collector.names.get(uuid));
+            return;
+        }
+        plugin.getPlayerNameCache().resolveName(uuid, callback);
+    }
+    
+    /**
+     * Reads a string field without throwing, so one malformed batch entry can't abort the batch.
+     *
+     * @return The value, or null if the field is missing or not a string or number
+     */
+    private static String primitiveString(JsonObject object, String field) {
+        JsonElement value = object.get(field);
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+    }
+    
     private void handleTestReachability(String requestId) {
         // Create the payload according to Takaro specification
         JsonObject payload = new JsonObject();
@@ -382,6 +846,10 @@ public class TakaroWebSocketClient extends WebSocketClient {
             if (message.has("payload")) {
                 JsonObject payload = message.getAsJsonObject("payload");
                 if (payload.has("args")) {
+                    // Batch entries may carry args as an object instead of a JSON string
+                    if (payload.get("args").isJsonObject()) {
+                        return payload.getAsJsonObject("args");
+                    }
                     String argsString = payload.get("args").getAsString();
                     return JsonParser.parseString(argsString).getAsJsonObject();
                 }
@@ -474,7 +942,7 @@ public class TakaroWebSocketClient extends WebSocketClient {
             locationObj.addProperty("x", location.getX());
             locationObj.addProperty("y", location.getY());
             locationObj.addProperty("z", location.getZ());
-            locationObj.addProperty("dimension", mapWorldToDimension(location.getWorld().getName()));
+            locationObj.addProperty("dimension", plugin.getDimensionRegistry().getDimension(location.getWorld()));
             
             JsonObject response = new JsonObject();
             response.addProperty("type", "response");
@@ -533,6 +1001,44 @@ public class TakaroWebSocketClient extends WebSocketClient {
         sendMessage(response);
     }
     
+    private void handleListEntities(String requestId) {
+        JsonArray entitiesArray = plugin.getEntityCatalog().getEntities();
+        
+        JsonObject response = new JsonObject();
+        response.addProperty("type", "response");
+        if (requestId != null) {
+            response.addProperty("requestId", requestId);
+        }
+        response.add("payload", entitiesArray);
+        
+        logger.info("Responding to listEntities: " + entitiesArray.size() + " entity types");
+        sendMessage(response);
+    }
+    
+    private void handleListLocations(String requestId) {
+        TakaroLocationStore locations = plugin.getLocationStore();
+        
+        if (activeBatch.get() != null) {
+            JsonObject response = new JsonObject();
+            response.addProperty("type", "response");
+            response.addProperty("requestId", requestId);
+            response.add("payload", locations.getPayload());
+            sendMessage(response);
+            return;
+        }
+        
+        // The payload is serialized once per change, so only the envelope is built here
+        StringBuilder response = new StringBuilder("{\"type\":\"response\",");
+        if (requestId != null) {
+            response.append("\"requestId\":").append(gson.toJson(requestId)).append(',');
+        }
+        response.append("\"payload\":").append(locations.getSerializedPayload()).append('}');
+        
+        logger.info("Responding to listLocations: " + locations.getPayload().size() + " locations");
+        recordRequestLatency(requestId);
+        sendSerialized(response.toString());
+    }
+    
     private void handleListBans(String requestId) {
         JsonArray bansArray = new JsonArray();
         
@@ -587,7 +1093,10 @@ public class TakaroWebSocketClient extends WebSocketClient {
         if (args.has("opts")) {
             JsonObject opts = args.getAsJsonObject("opts");
             
-            if (opts.has("recipient")) {
+            if (opts.has("recipients")) {
+                sendMessageToRecipients(requestId, opts.get("recipients"), formattedMessage, messageText);
+                return;
+            } else if (opts.has("recipient")) {
                 JsonObject recipient = opts.getAsJsonObject("recipient");
                 
                 if (!recipient.has("gameId")) {
@@ -636,19 +1145,149 @@ public class TakaroWebSocketClient extends WebSocketClient {
         sendMessage(response);
     }
     
+    /**
+     * Delivers a message to a group of players in a single main-thread pass. Recipients may be
+     * gameId strings or {gameId} objects. The response lists the recipients that were offline.
+     */
+    private void sendMessageToRecipients(String requestId, JsonElement recipients, String formattedMessage, String messageText) {
+        if (!recipients.isJsonArray()) {
+            sendErrorResponse(requestId, "recipients must be an array");
+            return;
+        }
+        
+        List<UUID> recipientIds = new ArrayList<>();
+        for (JsonElement recipient : recipients.getAsJsonArray()) {
+            String gameId;
+            if (recipient.isJsonObject() && recipient.getAsJsonObject().has("gameId")) {
+                gameId = recipient.getAsJsonObject().get("gameId").getAsString();
+            } else if (recipient.isJsonPrimitive()) {
+                gameId = recipient.getAsString();
+            } else {
+                sendErrorResponse(requestId, "recipients must contain gameIds");
+                return;
+            }
+            
+            try {
+                recipientIds.add(UUID.fromString(gameId));
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(requestId, "Invalid gameId format: " + gameId);
+                return;
+            }
+        }
+        
+        runOnMainThread("sendMessage", () -> {
+            JsonArray offline = new JsonArray();
+            int delivered = 0;
+            
+            for (UUID recipientId : recipientIds) {
+                Player targetPlayer = Bukkit.getPlayer(recipientId);
+                if (targetPlayer == null) {
+                    offline.add(recipientId.toString());
+                    continue;
+                }
+                targetPlayer.sendMessage(formattedMessage);
+                delivered++;
+            }
+            
+            JsonObject payload = new JsonObject();
+            payload.addProperty("delivered", delivered);
+            payload.add("offline", offline);
+            
+            JsonObject response = new JsonObject();
+            response.addProperty("type", "response");
+            if (requestId != null) {
+                response.addProperty("requestId", requestId);
+            }
+            response.add("payload", payload);
+            
+            logger.info("Sent message to " + delivered + " of " + recipientIds.size() + " recipients: " + messageText);
+            sendMessage(response);
+        });
+    }
+    
     private void handleGiveItem(String requestId, JsonObject message) {
         JsonObject args = parseArgsFromMessage(message);
         
+        PendingGive give;
+        try {
+            give = parseGive(requestId, args);
+        } catch (IllegalArgumentException e) {
+            sendErrorResponse(requestId, e.getMessage());
+            return;
+        }
+        
+        if (Bukkit.isPrimaryThread()) {
+            // Inside a batch, give right away so the response lands in the batch frame
+            completeGives(List.of(give));
+            return;
+        }
+        
+        // Gives to the same player within a tick are merged into one inventory operation
+        pendingGives.add(give);
+        if (giveFlushScheduled.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTask(plugin, plugin.getProfiler().wrap("giveItem", this::flushPendingGives));
+        }
+    }
+    
+    private void handleGiveItems(String requestId, JsonObject message) {
+        JsonObject args = parseArgsFromMessage(message);
+        
+        if (!args.has("items") || !args.get("items").isJsonArray()) {
+            sendErrorResponse(requestId, "items parameter is required and must be an array");
+            return;
+        }
+        
+        JsonArray items = args.getAsJsonArray("items");
+        JsonArray results = new JsonArray();
+        List<PendingGive> gives = new ArrayList<>();
+        
+        for (int i = 0; i < items.size(); i++) {
+            JsonObject result = new JsonObject();
+            result.addProperty("index", i);
+            results.add(result);
+            
+            try {
+                if (!items.get(i).isJsonObject()) {
+                    throw new IllegalArgumentException("Entry must be an object");
+                }
+                PendingGive give = parseGive(null, items.get(i).getAsJsonObject());
+                give.result = result;
+                gives.add(give);
+            } catch (IllegalArgumentException e) {
+                result.addProperty("success", false);
+                result.addProperty("error", e.getMessage());
+            }
+        }
+        
+        runOnMainThread("giveItems", () -> {
+            giveCoalesced(gives);
+            
+            JsonObject response = new JsonObject();
+            response.addProperty("type", "response");
+            if (requestId != null) {
+                response.addProperty("requestId", requestId);
+            }
+            response.add("payload", results);
+            
+            logger.info("Responding to giveItems: " + gives.size() + " of " + items.size() + " entries valid");
+            sendMessage(response);
+        });
+    }
+    
+    /**
+     * Validates giveItem arguments and builds the item stack to give.
+     *
+     * @throws IllegalArgumentException with the error message to return to Takaro
+     */
+    private PendingGive parseGive(String requestId, JsonObject args) {
         // Parse required parameters
         if (!args.has("player") || !args.has("item") || !args.has("amount")) {
-            sendErrorResponse(requestId, "Missing required parameters: player, item, and amount are required");
-            return;
+            throw new IllegalArgumentException("Missing required parameters: player, item, and amount are required");
         }
         
         JsonObject playerObj = args.getAsJsonObject("player");
         if (!playerObj.has("gameId")) {
-            sendErrorResponse(requestId, "player object must contain gameId");
-            return;
+            throw new IllegalArgumentException("player object must contain gameId");
         }
         
         String gameId = playerObj.get("gameId").getAsString();
@@ -657,88 +1296,136 @@ public class TakaroWebSocketClient extends WebSocketClient {
         
         try {
             amount = args.get("amount").getAsInt();
-            if (amount <= 0) {
-                sendErrorResponse(requestId, "Amount must be greater than 0");
-                return;
-            }
         } catch (NumberFormatException e) {
-            sendErrorResponse(requestId, "Invalid amount format");
-            return;
+            throw new IllegalArgumentException("Invalid amount format");
+        }
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be greater than 0");
         }
         
         // Parse optional quality parameter
         String quality = args.has("quality") ? args.get("quality").getAsString() : null;
         
+        UUID playerUUID;
         try {
-            UUID playerUUID = UUID.fromString(gameId);
-            Player player = Bukkit.getPlayer(playerUUID);
+            playerUUID = UUID.fromString(gameId);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid gameId format");
+        }
+        
+        // Convert item code to Material
+        Material material = Material.getMaterial(itemCode.toUpperCase());
+        if (material == null) {
+            throw new IllegalArgumentException("Invalid item code: " + itemCode);
+        }
+        
+        if (!material.isItem() || material.isAir()) {
+            throw new IllegalArgumentException("Item code does not represent a valid item: " + itemCode);
+        }
+        
+        // Create ItemStack
+        ItemStack itemStack = new ItemStack(material, amount);
+        
+        // Apply quality if applicable (for items with durability)
+        if (quality != null && material.getMaxDurability() > 0) {
+            try {
+                // Try to parse quality as a percentage (0-100)
+                double qualityPercent = Double.parseDouble(quality);
+                if (qualityPercent < 0 || qualityPercent > 100) {
+                    logger.warning("Quality value out of range (0-100): " + quality);
+                    qualityPercent = Math.max(0, Math.min(100, qualityPercent));
+                }
+                
+                // Calculate durability (inverse of damage)
+                short durability = (short)(material.getMaxDurability() * (qualityPercent / 100.0));
+                short damage = (short)(material.getMaxDurability() - durability);
+                itemStack.setDurability(damage);
+            } catch (NumberFormatException e) {
+                // Quality might be a string like "high", "low" - ignore for now
+                logger.info("Non-numeric quality value provided: " + quality);
+            }
+        }
+        
+        return new PendingGive(requestId, playerUUID, itemStack);
+    }
+    
+    private void flushPendingGives() {
+        giveFlushScheduled.set(false);
+        
+        List<PendingGive> gives = new ArrayList<>();
+        PendingGive give;
+        while ((give = pendingGives.poll()) != null) {
+            gives.add(give);
+        }
+        
+        completeGives(gives);
+    }
+    
+    /**
+     * Gives the items and answers each giveItem request separately. Must run on the main thread.
+     */
+    private void completeGives(List<PendingGive> gives) {
+        giveCoalesced(gives);
+        
+        for (PendingGive give : gives) {
+            if (give.error != null) {
+                sendErrorResponse(give.requestId, give.error);
+                continue;
+            }
             
-            if (player == null) {
-                sendErrorResponse(requestId, "Player not found or offline");
-                return;
+            // Send success response with null payload
+            JsonObject response = new JsonObject();
+            response.addProperty("type", "response");
+            if (give.requestId != null) {
+                response.addProperty("requestId", give.requestId);
             }
+            response.add("payload", null);
+            sendMessage(response);
+        }
+    }
+    
+    /**
+     * Gives items grouped by player: one addItem call per player and a single pass dropping
+     * whatever didn't fit at the player's feet. Records the outcome on each give.
+     * Must run on the main thread.
+     */
+    private void giveCoalesced(List<PendingGive> gives) {
+        Map<UUID, List<PendingGive>> byPlayer = new LinkedHashMap<>();
+        for (PendingGive give : gives) {
+            byPlayer.computeIfAbsent(give.playerId, id -> new ArrayList<>()).add(give);
+        }
+        
+        for (Map.Entry<UUID, List<PendingGive>> entry : byPlayer.entrySet()) {
+            List<PendingGive> playerGives = entry.getValue();
+            Player player = Bukkit.getPlayer(entry.getKey());
             
-            // Convert item code to Material
-            Material material = Material.getMaterial(itemCode.toUpperCase());
-            if (material == null) {
-                sendErrorResponse(requestId, "Invalid item code: " + itemCode);
-                return;
+            if (player == null) {
+                for (PendingGive give : playerGives) {
+                    give.fail("Player not found or offline");
+                }
+                continue;
             }
             
-            if (!material.isItem() || material.isAir()) {
-                sendErrorResponse(requestId, "Item code does not represent a valid item: " + itemCode);
-                return;
+            ItemStack[] stacks = new ItemStack[playerGives.size()];
+            for (int i = 0; i < stacks.length; i++) {
+                stacks[i] = playerGives.get(i).itemStack;
             }
             
-            // Create ItemStack
-            ItemStack itemStack = new ItemStack(material, amount);
+            HashMap<Integer, ItemStack> leftover = player.getInventory().addItem(stacks);
             
-            // Apply quality if applicable (for items with durability)
-            if (quality != null && material.getMaxDurability() > 0) {
-                try {
-                    // Try to parse quality as a percentage (0-100)
-                    double qualityPercent = Double.parseDouble(quality);
-                    if (qualityPercent < 0 || qualityPercent > 100) {
-                        logger.warning("Quality value out of range (0-100): " + quality);
-                        qualityPercent = Math.max(0, Math.min(100, qualityPercent));
-                    }
-                    
-                    // Calculate durability (inverse of damage)
-                    short durability = (short)(material.getMaxDurability() * (qualityPercent / 100.0));
-                    short damage = (short)(material.getMaxDurability() - durability);
-                    itemStack.setDurability(damage);
-                } catch (NumberFormatException e) {
-                    // Quality might be a string like "high", "low" - ignore for now
-                    logger.info("Non-numeric quality value provided: " + quality);
+            // Drop any items that couldn't fit in inventory
+            if (!leftover.isEmpty()) {
+                Location dropLocation = player.getLocation();
+                for (ItemStack item : leftover.values()) {
+                    player.getWorld().dropItem(dropLocation, item);
                 }
+                logger.info("Player inventory full, dropped " + leftover.size() + " item stacks at player location");
             }
             
-            // Add item to player inventory on main thread
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                HashMap<Integer, ItemStack> leftover = player.getInventory().addItem(itemStack);
-                
-                // Drop any items that couldn't fit in inventory
-                if (!leftover.isEmpty()) {
-                    for (ItemStack item : leftover.values()) {
-                        player.getWorld().dropItem(player.getLocation(), item);
-                    }
-                    logger.info("Player inventory full, dropped " + leftover.size() + " item stacks at player location");
-                }
-                
-                // Send success response with null payload
-                JsonObject response = new JsonObject();
-                response.addProperty("type", "response");
-                if (requestId != null) {
-                    response.addProperty("requestId", requestId);
-                }
-                response.add("payload", null);
-                
-                logger.info("Gave " + amount + " x " + material.name() + " to player " + player.getName());
-                sendMessage(response);
-            });
-            
-        } catch (IllegalArgumentException e) {
-            sendErrorResponse(requestId, "Invalid gameId format");
+            for (PendingGive give : playerGives) {
+                give.succeed(player);
+            }
+            logger.info("Gave " + playerGives.size() + " item stack(s) to player " + player.getName());
         }
     }
     
@@ -756,18 +1443,22 @@ public class TakaroWebSocketClient extends WebSocketClient {
             return;
         }
         
+        // Optional streaming mode: output arriving after the command returns is sent as commandOutput frames
+        boolean stream = args.has("stream") && args.get("stream").getAsBoolean();
+        
         logger.info("Executing console command: " + command);
         
         // Execute on main thread
-        Bukkit.getScheduler().runTask(plugin, () -> {
+        runOnMainThread("executeConsoleCommand", () -> {
+            TakaroCommandCapture capture = new TakaroCommandCapture(
+                    plugin.getConfig().getInt("takaro.commands.max_output", 16384));
             try {
-                // Execute the command and capture success
-                boolean success = Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
+                // Execute the command and capture success and output
+                boolean success = capture.dispatch(command);
                 
                 JsonObject payload = new JsonObject();
                 payload.addProperty("success", success);
-                // Note: Bukkit doesn't provide direct output capture, so rawResult is empty
-                payload.addProperty("rawResult", "");
+                payload.addProperty("rawResult", stream ? capture.drainNew() : capture.getOutput());
                 payload.add("errorMessage", null);
                 
                 JsonObject response = new JsonObject();
@@ -780,10 +1471,18 @@ public class TakaroWebSocketClient extends WebSocketClient {
                 logger.info("Console command executed successfully: " + command);
                 sendMessage(response);
                 
+                if (stream && requestId != null) {
+                    streamCommandOutput(requestId, capture);
+                } else {
+                    capture.close();
+                }
+                
             } catch (Exception e) {
+                capture.close();
+                
                 JsonObject payload = new JsonObject();
                 payload.addProperty("success", false);
-                payload.addProperty("rawResult", "");
+                payload.addProperty("rawResult", capture.getOutput());
                 payload.addProperty("errorMessage", e.getMessage());
                 
                 JsonObject response = new JsonObject();
@@ -799,6 +1498,58 @@ public class TakaroWebSocketClient extends WebSocketClient {
         });
     }
     
+    /**
+     * Sends output that a command produces after it returned (async plugin commands, progress
+     * messages) as commandOutput frames tied to the requestId. The stream ends after the
+     * configured window with a frame marked done.
+     */
+    private void streamCommandOutput(String requestId, TakaroCommandCapture capture) {
+        long interval = Math.max(50, plugin.getConfig().getLong("takaro.commands.stream_interval", 250));
+        long deadline = System.currentTimeMillis() + plugin.getConfig().getLong("takaro.commands.stream_window", 10000);
+        AtomicInteger sequence = new AtomicInteger();
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        
+        Runnable flush = () -> {
+            boolean done = System.currentTimeMillis() >= deadline || plugin.isShuttingDown();
+            if (done) {
+                capture.close();
+            }
+            
+            try {
+                String chunk = capture.drainNew();
+                if (!chunk.isEmpty() || done) {
+                    JsonObject payload = new JsonObject();
+                    payload.addProperty("output", chunk);
+                    payload.addProperty("sequence", sequence.getAndIncrement());
+                    payload.addProperty("done", done);
+                    
+                    JsonObject message = new JsonObject();
+                    message.addProperty("type", "commandOutput");
+                    message.addProperty("requestId", requestId);
+                    message.add("payload", payload);
+                    sendMessage(message);
+                }
+            } catch (Exception e) {
+                capture.close();
+                done = true;
+                logger.warning("Failed to stream command output for " + requestId + ": " + e.getMessage());
+            }
+            
+            if (done) {
+                ScheduledFuture<?> future = task.get();
+                if (future != null) {
+                    future.cancel(false);
+                }
+            }
+        };
+        
+        try {
+            task.set(connectionScheduler.scheduleAtFixedRate(flush, interval, interval, TimeUnit.MILLISECONDS));
+        } catch (RejectedExecutionException e) {
+            capture.close();
+        }
+    }
+    
     private void handleKickPlayer(String requestId, JsonObject message) {
         JsonObject args = parseArgsFromMessage(message);
         
@@ -831,7 +1582,7 @@ public class TakaroWebSocketClient extends WebSocketClient {
             logger.info("Kicking player: " + targetPlayer.getName() + " - Reason: " + reason);
             
             // Kick player on main thread
-            Bukkit.getScheduler().runTask(plugin, () -> {
+            runOnMainThread("kickPlayer", () -> {
                 targetPlayer.kickPlayer(reason);
                 
                 // Send null response on success
@@ -886,39 +1637,38 @@ public class TakaroWebSocketClient extends WebSocketClient {
         
         try {
             UUID playerUUID = UUID.fromString(gameId);
-            final OfflinePlayer targetPlayer = Bukkit.getOfflinePlayer(playerUUID);
-            
-            if (targetPlayer.getName() == null) {
-                sendErrorResponse(requestId, "Player not found");
-                return;
-            }
-            
-            logger.info("Banning player: " + targetPlayer.getName() + " - Reason: " + reason + 
-                       (expirationDate != null ? " - Expires: " + expirationDate : " - Permanent"));
-            
-            // Ban player on main thread
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                BanList banList = Bukkit.getBanList(BanList.Type.NAME);
-                banList.addBan(targetPlayer.getName(), reason, expirationDate, "Takaro");
+            // Cached names are read from memory, others are looked up on the I/O executor
+            resolvePlayerName(playerUUID, playerName -> {
+                if (playerName == null) {
+                    sendErrorResponse(requestId, "Player not found");
+                    return;
+                }
+                
+                logger.info("Banning player: " + playerName + " - Reason: " + reason + 
+                           (expirationDate != null ? " - Expires: " + expirationDate : " - Permanent"));
                 
-                // If player is currently online, kick them
-                if (targetPlayer.isOnline()) {
-                    Player onlinePlayer = targetPlayer.getPlayer();
+                // Ban player on main thread
+                runOnMainThread("banPlayer", () -> {
+                    BanList banList = Bukkit.getBanList(BanList.Type.NAME);
+                    banList.addBan(playerName, reason, expirationDate, "Takaro");
+                    
+                    // If player is currently online, kick them
+                    Player onlinePlayer = Bukkit.getPlayer(playerUUID);
                     if (onlinePlayer != null) {
                         onlinePlayer.kickPlayer("You have been banned: " + reason);
                     }
-                }
-                
-                // Send null response on success
-                JsonObject response = new JsonObject();
-                response.addProperty("type", "response");
-                if (requestId != null) {
-                    response.addProperty("requestId", requestId);
-                }
-                response.add("payload", null);
-                
-                logger.info("Player banned successfully: " + targetPlayer.getName());
-                sendMessage(response);
+                    
+                    // Send null response on success
+                    JsonObject response = new JsonObject();
+                    response.addProperty("type", "response");
+                    if (requestId != null) {
+                        response.addProperty("requestId", requestId);
+                    }
+                    response.add("payload", null);
+                    
+                    logger.info("Player banned successfully: " + playerName);
+                    sendMessage(response);
+                });
             });
             
         } catch (IllegalArgumentException e) {
@@ -963,35 +1713,36 @@ public class TakaroWebSocketClient extends WebSocketClient {
         
         try {
             UUID playerUUID = UUID.fromString(gameId);
-            final OfflinePlayer targetPlayer = Bukkit.getOfflinePlayer(playerUUID);
-            
-            if (targetPlayer.getName() == null) {
-                sendErrorResponse(requestId, "Player not found");
-                return;
-            }
-            
-            logger.info("Unbanning player: " + targetPlayer.getName());
-            
-            // Unban player on main thread
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                BanList banList = Bukkit.getBanList(BanList.Type.NAME);
+            // Cached names are read from memory, others are looked up on the I/O executor
+            resolvePlayerName(playerUUID, playerName -> {
+                if (playerName == null) {
+                    sendErrorResponse(requestId, "Player not found");
+                    return;
+                }
+                
+                logger.info("Unbanning player: " + playerName);
                 
-                if (banList.isBanned(targetPlayer.getName())) {
-                    banList.pardon(targetPlayer.getName());
+                // Unban player on main thread
+                runOnMainThread("unbanPlayer", () -> {
+                    BanList banList = Bukkit.getBanList(BanList.Type.NAME);
                     
-                    // Send null response on success
-                    JsonObject response = new JsonObject();
-                    response.addProperty("type", "response");
-                    if (requestId != null) {
-                        response.addProperty("requestId", requestId);
+                    if (banList.isBanned(playerName)) {
+                        banList.pardon(playerName);
+                        
+                        // Send null response on success
+                        JsonObject response = new JsonObject();
+                        response.addProperty("type", "response");
+                        if (requestId != null) {
+                            response.addProperty("requestId", requestId);
+                        }
+                        response.add("payload", null);
+                        
+                        logger.info("Player unbanned successfully: " + playerName);
+                        sendMessage(response);
+                    } else {
+                        sendErrorResponse(requestId, "Player is not banned");
                     }
-                    response.add("payload", null);
-                    
-                    logger.info("Player unbanned successfully: " + targetPlayer.getName());
-                    sendMessage(response);
-                } else {
-                    sendErrorResponse(requestId, "Player is not banned");
-                }
+                });
             });
             
         } catch (IllegalArgumentException e) {
@@ -1013,13 +1764,13 @@ public class TakaroWebSocketClient extends WebSocketClient {
         sendMessage(response);
         
         // Announce shutdown with 30 second warning
-        Bukkit.getScheduler().runTask(plugin, () -> {
+        runOnMainThread("shutdown", () -> {
             Bukkit.broadcastMessage("§c[Takaro] Server shutting down in 30 seconds!");
             logger.info("Server shutdown initiated - 30 second countdown started");
         });
         
         // Schedule shutdown after 30 seconds
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+        Bukkit.getScheduler().runTaskLater(plugin, plugin.getProfiler().wrap("shutdownSave", () -> {
             logger.info("Executing server shutdown");
             
             // Save all worlds
@@ -1035,7 +1786,7 @@ public class TakaroWebSocketClient extends WebSocketClient {
             
             // Shutdown server
             Bukkit.shutdown();
-        }, 600L); // 30 seconds = 600 ticks (20 ticks per second)
+        }), 600L); // 30 seconds = 600 ticks (20 ticks per second)
     }
     
     private void handleTeleportPlayer(String requestId, JsonObject message) {
@@ -1086,12 +1837,12 @@ public class TakaroWebSocketClient extends WebSocketClient {
                        (dimension != null ? " in dimension: " + dimension : ""));
             
             // Teleport player on main thread
-            Bukkit.getScheduler().runTask(plugin, () -> {
+            runOnMainThread("teleportPlayer", () -> {
                 try {
                     World targetWorld;
                     
                     if (dimension != null) {
-                        targetWorld = mapDimensionToWorld(dimension);
+                        targetWorld = plugin.getDimensionRegistry().getWorld(dimension);
                         if (targetWorld == null) {
                             sendErrorResponse(requestId, "Invalid or unavailable dimension: " + dimension);
                             return;
@@ -1138,13 +1889,17 @@ public class TakaroWebSocketClient extends WebSocketClient {
     }
     
     private void sendErrorResponse(String requestId, String errorMessage) {
+        sendMessage(errorResponse(requestId, errorMessage));
+    }
+    
+    private JsonObject errorResponse(String requestId, String errorMessage) {
         JsonObject errorResponse = new JsonObject();
         errorResponse.addProperty("type", "response");
         if (requestId != null) {
             errorResponse.addProperty("requestId", requestId);
         }
         errorResponse.addProperty("error", errorMessage);
-        sendMessage(errorResponse);
+        return errorResponse;
     }
     
     public void sendGameEvent(String eventType, JsonObject data) {
@@ -1172,6 +1927,19 @@ public class TakaroWebSocketClient extends WebSocketClient {
     }
     
     public void sendLogEvent(String message) {
+        // Create log data object
+        JsonObject logData = new JsonObject();
+        logData.addProperty("msg", message);
+        
+        sendLogEvent(logData);
+    }
+    
+    /**
+     * Sends a structured log event (level, logger, thread, timestamp, msg and an optional
+     * throwable). Unlike other game events this doesn't log each send, which would be one
+     * extra console line per forwarded line.
+     */
+    public void sendLogEvent(JsonObject logData) {
         if (!isAuthenticated()) {
             if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
                 logger.warning("Cannot send log event - not authenticated");
@@ -1179,12 +1947,16 @@ public class TakaroWebSocketClient extends WebSocketClient {
             return;
         }
         
-        // Create log data object
-        JsonObject logData = new JsonObject();
-        logData.addProperty("msg", message);
+        JsonObject payload = new JsonObject();
+        payload.addProperty("type", "log");
+        payload.add("data", logData);
         
         // Use the standard game event structure
-        sendGameEvent("log", logData);
+        JsonObject eventMessage = new JsonObject();
+        eventMessage.addProperty("type", "gameEvent");
+        eventMessage.add("payload", payload);
+        
+        sendMessage(eventMessage);
     }
     
     public JsonObject createPlayerData(Player player) {
@@ -1207,110 +1979,495 @@ public class TakaroWebSocketClient extends WebSocketClient {
     }
     
     private void sendMessage(JsonObject message) {
-        if (plugin.getConfig().getBoolean("takaro.logging.log_messages", false)) {
-            logger.info("Sending message: " + message.toString());
+        boolean isResponse = message.has("type") && "response".equals(message.get("type").getAsString());
+        
+        if (isResponse && message.has("requestId")) {
+            recordRequestLatency(message.get("requestId").getAsString());
+        }
+        
+        if (isResponse && requestCache != null && message.has("requestId")) {
+            String requestId = message.get("requestId").getAsString();
+            if (requestCache.isInFlight(requestId)) {
+                if (message.has("error")) {
+                    // Failed requests didn't change anything, so a retry may run them again
+                    requestCache.abandon(requestId);
+                } else {
+                    requestCache.complete(requestId, gson.toJson(message));
+                }
+            }
         }
         
-        send(gson.toJson(message));
+        // Responses produced while a batch runs on this thread are collected into the batch frame
+        BatchCollector collector = activeBatch.get();
+        if (collector != null && isResponse) {
+            collector.add(message);
+            return;
+        }
+        
+        enqueue(new OutboundMessage(message, null));
+    }
+    
+    private void sendSerialized(String json) {
+        enqueue(new OutboundMessage(null, json));
+    }
+    
+    /**
+     * Queues a message for the sender. Messages are serialized and written in order by a single
+     * drain task on the plugin's virtual-thread executor, so callers (often the main thread)
+     * never pay for JSON encoding or socket writes.
+     */
+    private void enqueue(OutboundMessage message) {
+        outboundQueue.add(message);
+        scheduleDrain();
+    }
+    
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        // onDisable clears the executor, and a late enqueue from another thread can still get here
+        ExecutorService executor = plugin.getIoExecutor();
+        try {
+            if (executor != null) {
+                executor.execute(this::drainOutbound);
+                return;
+            }
+        } catch (RejectedExecutionException e) {
+            // Executor is shutting down
+        }
+        // Flush on the calling thread, frames are counted as dropped once the connection is closed
+        drainOutbound();
     }
     
-    private void scheduleReconnect() {
+    private void drainOutbound() {
+        TakaroFrameBuffers.Encoder encoder = plugin.getFrameBuffers().acquire();
+        try {
+            OutboundMessage message;
+            while ((message = outboundQueue.poll()) != null) {
+                // Serialize straight into the pooled buffer as UTF-8, without an intermediate String
+                encoder.reset();
+                if (message.serialized != null) {
+                    encoder.write(message.serialized);
+                } else {
+                    gson.toJson(message.json, encoder);
+                }
+                ByteBuffer payload = encoder.finish();
+                int length = payload.remaining();
+                
+                if (plugin.getConfig().getBoolean("takaro.logging.log_messages", false)) {
+                    logger.info("Sending message: " + StandardCharsets.UTF_8.decode(payload.duplicate()));
+                }
+                
+                try {
+                    // The library copies the payload into its own frame buffer, so the encoder can be reused right after
+                    TextFrame frame = new TextFrame();
+                    frame.setPayload(payload);
+                    frame.setFin(true);
+                    sendFrame(frame);
+                    sendLatency.record(System.nanoTime() - message.enqueuedAt);
+                    framesSent.increment();
+                    bytesSent.add(length);
+                } catch (WebsocketNotConnectedException e) {
+                    framesDropped.increment();
+                    if (plugin.getConfig().getBoolean("takaro.logging.debug", false)) {
+                        logger.warning("Dropped outbound message - not connected");
+                    }
+                }
+            }
+        } finally {
+            plugin.getFrameBuffers().release(encoder);
+            draining.set(false);
+        }
+        
+        // A message may have been queued after the last poll but before draining was cleared
+        if (!outboundQueue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+    
+    private synchronized void scheduleReconnect() {
         if (maxReconnectAttempts != -1 && reconnectAttempts >= maxReconnectAttempts) {
             logger.severe("Maximum reconnection attempts reached. Giving up.");
+            state.moveTo(State.CLOSED, "maximum reconnection attempts reached");
             return;
         }
         
+        if (reconnectTask != null && !reconnectTask.isDone()) {
+            return;
+        }
+        
+        long delay = nextReconnectDelay();
         reconnectAttempts++;
+        reconnects.increment();
+        nextReconnectAt = System.currentTimeMillis() + delay;
         logger.info(String.format("Scheduling reconnection attempt %d in %d ms", 
-                reconnectAttempts, reconnectDelay));
+                reconnectAttempts, delay));
         
-        reconnectTask = Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> {
-            if (!plugin.isShuttingDown()) {
-                logger.info("Attempting to reconnect to Takaro...");
-                reconnect();
-                
-                reconnectDelay = Math.min((long)(reconnectDelay * backoffMultiplier), maxReconnectDelay);
+        try {
+            reconnectTask = connectionScheduler.schedule(() -> {
+                synchronized (this) {
+                    reconnectTask = null;
+                    nextReconnectAt = 0;
+                }
+                if (!plugin.isShuttingDown() && reconnectEnabled) {
+                    logger.info("Attempting to reconnect to Takaro...");
+                    // reconnect() blocks while the old connection shuts down, keep the timer thread free
+                    ExecutorService executor = plugin.getIoExecutor();
+                    if (executor != null) {
+                        executor.execute(this::reconnect);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Scheduler was shut down while the connection was closing
+            nextReconnectAt = 0;
+        }
+    }
+    
+    /**
+     * Computes the delay before the next reconnect attempt. The first retry after a drop uses
+     * the short first_retry_delay so transient drops recover quickly, jittered between half of it
+     * and all of it. Later attempts use decorrelated jitter (a random delay between the initial
+     * delay and the previous delay times the multiplier), so many servers losing the same backend
+     * don't reconnect in lockstep.
+     */
+    private long nextReconnectDelay() {
+        if (reconnectAttempts == 0 && firstRetryDelay > 0) {
+            return reconnectJitter
+                    ? ThreadLocalRandom.current().nextLong(firstRetryDelay / 2, firstRetryDelay + 1)
+                    : firstRetryDelay;
+        }
+        
+        if (!reconnectJitter) {
+            long delay = reconnectDelay;
+            reconnectDelay = Math.min(maxReconnectDelay, (long) (reconnectDelay * backoffMultiplier));
+            return delay;
+        }
+        
+        long upper = Math.min(maxReconnectDelay, (long) (reconnectDelay * backoffMultiplier));
+        reconnectDelay = upper > initialReconnectDelay
+                ? ThreadLocalRandom.current().nextLong(initialReconnectDelay, upper + 1)
+                : initialReconnectDelay;
+        return reconnectDelay;
+    }
+    
+    /**
+     * Records the time from dispatching a request to its response, per action.
+     */
+    private void recordRequestLatency(String requestId) {
+        if (requestId == null) {
+            return;
+        }
+        RequestTiming timing = pendingTimings.remove(requestId);
+        if (timing == null) {
+            return;
+        }
+        
+        // Actions come from the backend, so cap the number of label values
+        String action = actionLatency.containsKey(timing.action) || actionLatency.size() < MAX_TIMED_ACTIONS
+                ? timing.action : "other";
+        actionLatency.computeIfAbsent(action, key -> new TakaroHistogram())
+                .record(System.nanoTime() - timing.startedAt);
+    }
+    
+    private static long utf8Length(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
             }
-        }, reconnectDelay / 50);
+        }
+        return length;
+    }
+    
+    /**
+     * Runs a task on the main thread. Inside a batch the dispatcher is already on the main thread,
+     * so the task runs inline and its response lands in the same batch frame.
+     */
+    private void runOnMainThread(String name, Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            // Already inside a timed section (a batch), so don't time it twice
+            task.run();
+        } else {
+            Bukkit.getScheduler().runTask(plugin, plugin.getProfiler().wrap(name, task));
+        }
     }
     
     public void shutdown() {
         reconnectEnabled = false;
-        if (reconnectTask != null) {
-            reconnectTask.cancel();
-            reconnectTask = null;
+        state.moveTo(State.CLOSED, "shutdown");
+        synchronized (this) {
+            if (reconnectTask != null) {
+                reconnectTask.cancel(false);
+                reconnectTask = null;
+            }
+            if (heartbeatTask != null) {
+                heartbeatTask.cancel(false);
+                heartbeatTask = null;
+            }
         }
+        connectionScheduler.shutdownNow();
         if (!isClosed()) {
             close();
         }
     }
     
     public boolean isAuthenticated() {
-        return authenticated && isOpen();
+        return state.isReady() && isOpen();
+    }
+    
+    /**
+     * @return The connection lifecycle, for readiness checks, transition listeners and diagnostics
+     */
+    public TakaroConnectionState getConnectionState() {
+        return state;
+    }
+    
+    public Role getRole() {
+        return role;
+    }
+    
+    /**
+     * @return Whether this telemetry connection was refused by the backend and has given up
+     */
+    public boolean isRejected() {
+        return rejected;
+    }
+    
+    /**
+     * Stops a telemetry connection the backend doesn't accept. Events and logs then stay on the
+     * control connection, which is the single-connection behavior.
+     */
+    private void reject(String reason) {
+        rejected = true;
+        reconnectEnabled = false;
+        state.moveTo(State.CLOSED, "refused by Takaro: " + reason);
+        logger.warning("Takaro refused the telemetry connection (" + reason + "), falling back to a single connection");
+        synchronized (this) {
+            if (reconnectTask != null) {
+                reconnectTask.cancel(false);
+                reconnectTask = null;
+            }
+        }
+        if (!isClosing() && !isClosed()) {
+            close();
+        }
+    }
+    
+    private String describeRole() {
+        return role == Role.TELEMETRY ? " (telemetry)" : "";
+    }
+    
+    /**
+     * Describes the current reconnect backoff state for diagnostics.
+     */
+    public String getReconnectState() {
+        long remaining = nextReconnectAt > 0 ? Math.max(0, nextReconnectAt - System.currentTimeMillis()) : -1;
+        return String.format("attempts=%d, delay=%dms, next=%s, enabled=%b",
+                reconnectAttempts, reconnectDelay, remaining >= 0 ? remaining + "ms" : "none", reconnectEnabled);
+    }
+    
+    /**
+     * Describes the heartbeat round-trip times in milliseconds for diagnostics.
+     */
+    public String getRttStats() {
+        if (rttSamples.size() == 0) {
+            return "no samples";
+        }
+        return String.format("last=%.1fms, p50=%.1fms, p95=%.1fms, p99=%.1fms, max=%.1fms (%d samples)",
+                rttSamples.last() / 1e6, rttSamples.percentile(50) / 1e6, rttSamples.percentile(95) / 1e6,
+                rttSamples.percentile(99) / 1e6, rttSamples.max() / 1e6, rttSamples.size());
+    }
+    
+    public TakaroSampleWindow getRttSamples() {
+        return rttSamples;
+    }
+    
+    /**
+     * Describes the outbound queue and the time messages wait in it before being written.
+     */
+    public String getOutboundStats() {
+        if (sendLatency.size() == 0) {
+            return String.format("queued=%d, no samples", outboundQueue.size());
+        }
+        return String.format("queued=%d, latency p50=%.3fms, p95=%.3fms, max=%.3fms",
+                outboundQueue.size(), sendLatency.percentile(50) / 1e6, sendLatency.percentile(95) / 1e6,
+                sendLatency.max() / 1e6);
+    }
+    
+    public int getOutboundQueueSize() {
+        return outboundQueue.size();
+    }
+    
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+    
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+    
+    public long getFramesReceived() {
+        return framesReceived.sum();
+    }
+    
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+    
+    /**
+     * @return Outbound frames dropped because the connection was down when they were written
+     */
+    public long getFramesDropped() {
+        return framesDropped.sum();
+    }
+    
+    /**
+     * @return Reconnect attempts since startup, unlike getReconnectAttempts() this is never reset
+     */
+    public long getReconnectCount() {
+        return reconnects.sum();
+    }
+    
+    /**
+     * @return Request-to-response latency per action
+     */
+    public Map<String, TakaroHistogram> getActionLatency() {
+        return actionLatency;
+    }
+    
+    public int getReconnectAttempts() {
+        return reconnectAttempts;
+    }
+    
+    public long getNextReconnectDelay() {
+        return nextReconnectAt > 0 ? Math.max(0, nextReconnectAt - System.currentTimeMillis()) : -1;
     }
     
     public void updateTokens(String identityToken, String registrationToken) {
         this.identityToken = identityToken;
         this.registrationToken = registrationToken;
         
-        if (isOpen() && !authenticated) {
+        if (isOpen() && state.get() == State.IDENTIFYING) {
             sendAuthenticationMessage();
         }
     }
     
     /**
-     * Maps Minecraft world names to Takaro dimension names
-     * @param worldName The Minecraft world name
-     * @return The corresponding Takaro dimension name
+     * Collects the responses of a batch in entry order, keyed by requestId, and holds the player
+     * names resolved for its entries.
      */
-    private String mapWorldToDimension(String worldName) {
-        if (worldName.endsWith("_the_end")) {
-            return "end";
-        } else if (worldName.endsWith("_nether")) {
-            return "nether";
-        } else {
-            return "overworld";
+    private static class BatchCollector {
+        private final Map<String, JsonObject> responses = new LinkedHashMap<>();
+        private final JsonArray unkeyed = new JsonArray();
+        private final Map<UUID, String> names;
+        
+        BatchCollector(Map<UUID, String> names) {
+            this.names = names;
+        }
+        
+        void expect(String requestId) {
+            responses.putIfAbsent(requestId, null);
+        }
+        
+        void add(JsonObject response) {
+            if (response.has("requestId")) {
+                responses.put(response.get("requestId").getAsString(), response);
+            } else {
+                unkeyed.add(response);
+            }
+        }
+        
+        boolean hasResponse(String requestId) {
+            return responses.get(requestId) != null;
+        }
+        
+        int size() {
+            return responses.size() + unkeyed.size();
+        }
+        
+        JsonArray toJsonArray() {
+            JsonArray array = new JsonArray();
+            for (JsonObject response : responses.values()) {
+                if (response != null) {
+                    array.add(response);
+                }
+            }
+            array.addAll(unkeyed);
+            return array;
         }
     }
     
     /**
-     * Maps Takaro dimension names to Minecraft world names
-     * @param dimension The Takaro dimension name
-     * @return The corresponding Minecraft world, or null if not found
+     * A queued outbound frame, either a JSON object to serialize or an already serialized string.
      */
-    private World mapDimensionToWorld(String dimension) {
-        if (dimension == null) {
-            return null;
+    private static final class OutboundMessage {
+        private final JsonObject json;
+        private final String serialized;
+        private final long enqueuedAt = System.nanoTime();
+        
+        private OutboundMessage(JsonObject json, String serialized) {
+            this.json = json;
+            this.serialized = serialized;
         }
+    }
+    
+    /**
+     * The action and dispatch time of a request waiting for its response, for the latency histograms.
+     */
+    private static final class RequestTiming {
+        private final String action;
+        private final long startedAt = System.nanoTime();
         
-        switch (dimension.toLowerCase()) {
-            case "end":
-                // Find world ending with _the_end
-                for (World world : Bukkit.getWorlds()) {
-                    if (world.getName().endsWith("_the_end")) {
-                        return world;
-                    }
-                }
-                break;
-            case "nether":
-                // Find world ending with _nether
-                for (World world : Bukkit.getWorlds()) {
-                    if (world.getName().endsWith("_nether")) {
-                        return world;
-                    }
-                }
-                break;
-            case "overworld":
-            default:
-                // Find main overworld (usually named "world")
-                for (World world : Bukkit.getWorlds()) {
-                    if (!world.getName().endsWith("_nether") && !world.getName().endsWith("_the_end")) {
-                        return world;
-                    }
-                }
-                break;
+        private RequestTiming(String action) {
+            this.action = action;
+        }
+    }
+    
+    /**
+     * A validated give waiting for the main thread. Either answers its own giveItem request
+     * or fills in its entry of a giveItems result.
+     */
+    private static final class PendingGive {
+        private final String requestId;
+        private final UUID playerId;
+        private final ItemStack itemStack;
+        private final Material material;
+        private final int amount;
+        private JsonObject result;
+        private String error;
+        
+        private PendingGive(String requestId, UUID playerId, ItemStack itemStack) {
+            this.requestId = requestId;
+            this.playerId = playerId;
+            this.itemStack = itemStack;
+            this.material = itemStack.getType();
+            this.amount = itemStack.getAmount();
+        }
+        
+        private void fail(String message) {
+            error = message;
+            if (result != null) {
+                result.addProperty("success", false);
+                result.addProperty("error", message);
+            }
         }
         
-        return null;
+        private void succeed(Player player) {
+            if (result != null) {
+                result.addProperty("success", true);
+                result.addProperty("player", player.getUniqueId().toString());
+                result.addProperty("item", material.name());
+                result.addProperty("amount", amount);
+            }
+        }
     }
-}
\ No newline at end of file
+}
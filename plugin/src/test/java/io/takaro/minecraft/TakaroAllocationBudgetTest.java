@@ -0,0 +1,220 @@
+package io.takaro.minecraft;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fails the build when a main-thread task allocates more than its budget.
+ *
+ * Runs the plugin on the headless test server with the budgets from the
+ * bundled config.yml and feeds every event handler through the load
+ * simulator. Runs during warm-up are not checked, since class loading and
+ * interpreted code allocate more than the same handler on a warm server.
+ *
+ * Requests from Takaro are held to the per-action budgets below, counting
+ * what they allocate on the socket's read thread, which parses and answers
+ * read-only requests, plus their main-thread task if they have one.
+ */
+class TakaroAllocationBudgetTest {
+
+    private static final int WARMUP_TICKS = 400;
+    private static final int MEASURED_TICKS = 1200;
+    private static final int WARMUP_REQUESTS = 300;
+    private static final int MEASURED_REQUESTS = 200;
+    private static final int ONLINE_PLAYERS = 20;
+
+    // Java-WebSocket calls onMessage, and with it every request handler, on the connection's read thread
+    private static final String READ_THREAD_PREFIX = "WebSocketConnectReadThread-";
+
+    // Average KB allocated per request, by action, about 1.5x what each one allocates on the harness
+    private static final Map<String, Integer> REQUEST_BUDGETS_KB = new LinkedHashMap<>();
+    static {
+        REQUEST_BUDGETS_KB.put("testReachability", 25);
+        REQUEST_BUDGETS_KB.put("getPlayer", 31);
+        REQUEST_BUDGETS_KB.put("getPlayers", 44);
+        REQUEST_BUDGETS_KB.put("getPlayerLocation", 31);
+        REQUEST_BUDGETS_KB.put("getPlayerInventory", 31);
+        REQUEST_BUDGETS_KB.put("listBans", 25);
+        REQUEST_BUDGETS_KB.put("listEntities", 25);
+        REQUEST_BUDGETS_KB.put("listLocations", 27);
+        REQUEST_BUDGETS_KB.put("sendMessage", 34);
+        REQUEST_BUDGETS_KB.put("executeConsoleCommand", 42);
+        REQUEST_BUDGETS_KB.put("kickPlayer", 41);
+        REQUEST_BUDGETS_KB.put("teleportPlayer", 43);
+    }
+
+    // Checked against their budgets like every other section, including the simulator's own task, whose
+    // budget in config.yml covers the handlers that run nested in it
+    private static final List<String> HANDLER_SECTIONS = List.of("chat", "player-connected",
+            "player-disconnected", "player-death", "entity-killed", "player-command");
+
+    private TakaroTestServer server;
+    private TakaroTestServer.TestPlugin plugin;
+
+    @BeforeEach
+    void startPlugin() throws Exception {
+        TakaroTestAllocations.counter();
+
+        // Everything else, including the budgets and simulation rates, comes from the bundled config.yml
+        Map<String, Object> config = new HashMap<>();
+        config.put("takaro.governor.enabled", false);
+        config.put("takaro.events.player-command", true);
+        config.put("takaro.simulation.enabled", true);
+
+        server = TakaroTestServer.get();
+        plugin = server.startPlugin(config);
+    }
+
+    @AfterEach
+    void stopPlugin() throws Exception {
+        server.stopPlugin();
+    }
+
+    @Test
+    void mainThreadTasksStayWithinTheirAllocationBudgets() {
+        TakaroProfiler profiler = plugin.getProfiler();
+        assertTrue(profiler.isTrackingAllocations(), "takaro.profiling.track_allocations is off in config.yml");
+
+        TakaroLoadSimulator simulator = plugin.getLoadSimulator();
+        assertTrue(simulator.start(0));
+        server.runTicks(WARMUP_TICKS);
+        Map<String, Long> overBudgetAfterWarmup = new HashMap<>();
+        for (TakaroProfiler.Section section : profiler.getSections()) {
+            overBudgetAfterWarmup.put(section.getName(), section.getOverBudgetCount());
+        }
+
+        server.runTicks(MEASURED_TICKS);
+        simulator.stop();
+
+        List<String> sections = profiler.getSections().stream().map(TakaroProfiler.Section::getName).toList();
+        for (String handler : HANDLER_SECTIONS) {
+            assertTrue(sections.contains(handler), "The simulation never ran " + handler);
+        }
+
+        List<String> overBudget = new ArrayList<>();
+        for (TakaroProfiler.Section section : profiler.getSections()) {
+            long runs = section.getOverBudgetCount() - overBudgetAfterWarmup.getOrDefault(section.getName(), 0L);
+            if (runs > 0) {
+                overBudget.add(String.format("%s: %d runs over budget, max %dKB", section.getName(), runs,
+                        section.getMaxBytes() / 1024));
+            }
+        }
+        assertTrue(overBudget.isEmpty(), "Tasks over their allocation budget:\n" + String.join("\n", overBudget));
+    }
+
+    @Test
+    void requestsStayWithinTheirAllocationBudgets() throws Exception {
+        com.sun.management.ThreadMXBean threads = TakaroTestAllocations.counter();
+        TakaroProfiler profiler = plugin.getProfiler();
+        TakaroTestBackend backend = server.getBackend();
+        for (int i = 0; i < ONLINE_PLAYERS; i++) {
+            server.addPlayer("Player" + i);
+        }
+        String gameId = server.getServer().getOnlinePlayers().iterator().next().getUniqueId().toString();
+
+        List<String> overBudget = new ArrayList<>();
+        for (Map.Entry<String, Integer> budget : REQUEST_BUDGETS_KB.entrySet()) {
+            String action = budget.getKey();
+            JsonObject args = requestArgs(action, gameId);
+            for (int i = 0; i < WARMUP_REQUESTS; i++) {
+                await(backend.request(action, args));
+            }
+
+            long readThreadBytes = readThreadAllocatedBytes(threads);
+            long mainThreadBytes = sectionAllocatedBytes(profiler, action);
+            for (int i = 0; i < MEASURED_REQUESTS; i++) {
+                JsonObject response = await(backend.request(action, args));
+                assertFalse(response.has("error"), action + " failed: " + response);
+            }
+            long allocated = readThreadAllocatedBytes(threads) - readThreadBytes
+                    + sectionAllocatedBytes(profiler, action) - mainThreadBytes;
+
+            long perRequest = allocated / MEASURED_REQUESTS;
+            if (perRequest > budget.getValue() * 1024L) {
+                overBudget.add(String.format("%s: %.1fKB per request, budget %dKB", action, perRequest / 1024.0,
+                        budget.getValue()));
+            }
+        }
+        assertTrue(overBudget.isEmpty(), "Requests over their allocation budget:\n" + String.join("\n", overBudget));
+    }
+
+    private static JsonObject requestArgs(String action, String gameId) {
+        JsonObject args = new JsonObject();
+        JsonObject player = new JsonObject();
+        player.addProperty("gameId", gameId);
+        switch (action) {
+            case "getPlayer", "getPlayerLocation", "getPlayerInventory" -> args.addProperty("gameId", gameId);
+            case "sendMessage" -> {
+                JsonArray recipients = new JsonArray();
+                recipients.add(gameId);
+                JsonObject opts = new JsonObject();
+                opts.add("recipients", recipients);
+                args.addProperty("message", "Welcome back!");
+                args.add("opts", opts);
+            }
+            case "executeConsoleCommand" -> args.addProperty("command", "say Restarting in 5 minutes");
+            case "kickPlayer" -> {
+                args.add("player", player);
+                args.addProperty("reason", "AFK");
+            }
+            case "teleportPlayer" -> {
+                args.add("player", player);
+                args.addProperty("x", 100.5);
+                args.addProperty("y", 70);
+                args.addProperty("z", -20.5);
+            }
+            default -> {
+                return null;
+            }
+        }
+        return args;
+    }
+
+    private static long readThreadAllocatedBytes(com.sun.management.ThreadMXBean threads) {
+        long bytes = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(READ_THREAD_PREFIX)) {
+                bytes += threads.getThreadAllocatedBytes(thread.threadId());
+            }
+        }
+        return bytes;
+    }
+
+    private static long sectionAllocatedBytes(TakaroProfiler profiler, String name) {
+        for (TakaroProfiler.Section section : profiler.getSections()) {
+            if (section.getName().equals(name)) {
+                return section.getTotalBytes();
+            }
+        }
+        return 0;
+    }
+
+    // Ticks back to back instead of in real time, so the thousands of requests take seconds
+    private JsonObject await(CompletableFuture<JsonObject> response) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (System.nanoTime() < deadline) {
+            server.tick();
+            try {
+                return response.get(1, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Not answered yet, run another tick
+            }
+        }
+        throw new AssertionError("Timed out: no response from the plugin");
+    }
+}
@@ -0,0 +1,38 @@
+package io.takaro.minecraft;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TakaroEventModulesTest {
+
+    private static final List<String> REDACTED = Arrays.asList("login", "/register", "msg");
+
+    @Test
+    void redactsArgumentsOfListedCommands() {
+        assertEquals("/login <redacted>", redact("/login hunter2"));
+        assertEquals("/register <redacted>", redact("/register hunter2 hunter2"));
+        assertEquals("/MSG <redacted>", redact("/MSG Steve meet me at spawn"));
+    }
+
+    @Test
+    void matchesNamespacedLabels() {
+        assertEquals("/authme:login <redacted>", redact("/authme:login hunter2"));
+        assertEquals("/minecraft:msg <redacted>", redact("/minecraft:msg Steve hi"));
+    }
+
+    @Test
+    void leavesOtherCommandsAlone() {
+        assertEquals("/login", redact("/login"));
+        assertEquals("/spawn", redact("/spawn"));
+        assertEquals("/give Steve diamond 64", redact("/give Steve diamond 64"));
+        assertEquals("/loginhistory Steve", redact("/loginhistory Steve"));
+    }
+
+    private static String redact(String message) {
+        return TakaroEventModules.PlayerCommand.redactArguments(message, REDACTED);
+    }
+}
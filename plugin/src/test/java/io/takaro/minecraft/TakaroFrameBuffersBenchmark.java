@@ -0,0 +1,105 @@
+package io.takaro.minecraft;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares encoding outbound frames with the pooled encoder against toJson and
+ * getBytes. Not part of the normal build, run it with mvn test -Pbenchmark.
+ */
+@Tag("benchmark")
+class TakaroFrameBuffersBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 100_000;
+
+    private final Gson gson = new Gson();
+    private final TakaroFrameBuffers buffers = new TakaroFrameBuffers();
+
+    // Keeps the JIT from dropping the work
+    private long sink;
+
+    @Test
+    void encoderAgainstGetBytes() {
+        com.sun.management.ThreadMXBean threads = TakaroTestAllocations.counter();
+        JsonObject message = sampleMessage();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            viaString(message);
+            viaEncoder(message);
+        }
+
+        long stringBytes = threads.getCurrentThreadAllocatedBytes();
+        long stringNanos = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            viaString(message);
+        }
+        stringNanos = System.nanoTime() - stringNanos;
+        stringBytes = threads.getCurrentThreadAllocatedBytes() - stringBytes;
+
+        long encoderBytes = threads.getCurrentThreadAllocatedBytes();
+        long encoderNanos = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            viaEncoder(message);
+        }
+        encoderNanos = System.nanoTime() - encoderNanos;
+        encoderBytes = threads.getCurrentThreadAllocatedBytes() - encoderBytes;
+
+        System.out.printf("toJson + getBytes: %.0f ns/op, %.0f B/op%n",
+                stringNanos / (double) MEASURED_ROUNDS, stringBytes / (double) MEASURED_ROUNDS);
+        System.out.printf("pooled encoder:    %.0f ns/op, %.0f B/op%n",
+                encoderNanos / (double) MEASURED_ROUNDS, encoderBytes / (double) MEASURED_ROUNDS);
+
+        assertTrue(encoderBytes < stringBytes, "The pooled encoder allocated more than toJson + getBytes");
+    }
+
+    private void viaString(JsonObject message) {
+        byte[] payload = gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+        sink += payload.length;
+    }
+
+    private void viaEncoder(JsonObject message) {
+        TakaroFrameBuffers.Encoder encoder = buffers.acquire();
+        try {
+            gson.toJson(message, encoder);
+            ByteBuffer payload = encoder.finish();
+            sink += payload.remaining();
+        } finally {
+            buffers.release(encoder);
+        }
+    }
+
+    private static JsonObject sampleMessage() {
+        JsonObject player = new JsonObject();
+        player.addProperty("gameId", "0f8fad5b-d9cb-469f-a165-70867728950e");
+        player.addProperty("name", "Steve");
+        player.addProperty("platformId", "minecraft:0f8fad5b-d9cb-469f-a165-70867728950e");
+
+        JsonArray items = new JsonArray();
+        for (int i = 0; i < 20; i++) {
+            JsonObject item = new JsonObject();
+            item.addProperty("code", "DIAMOND_SWORD");
+            item.addProperty("name", "Épée de diamant ⚔");
+            item.addProperty("amount", i + 1);
+            items.add(item);
+        }
+
+        JsonObject payload = new JsonObject();
+        payload.add("player", player);
+        payload.add("items", items);
+        payload.addProperty("msg", "gg 😀 bien joué");
+
+        JsonObject message = new JsonObject();
+        message.addProperty("type", "gameEvent");
+        message.add("payload", payload);
+        return message;
+    }
+}
@@ -0,0 +1,149 @@
+package io.takaro.minecraft;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TakaroFrameBuffersTest {
+
+    private static final String[] SAMPLES = {
+            "",
+            "plain ascii {\"type\":\"chat-message\"}",
+            "café über ñ",
+            "€ 中文 \uFFFF",
+            "😀 smile 🎉",
+            "mixed aé€😀z",
+            // Unpaired surrogates, String.getBytes replaces each with '?'
+            "\uD83D",
+            "\uDE00",
+            "a\uD83Db",
+            "a\uDE00b",
+            "\uD83D😀",
+            "\uDE00\uD83D",
+            "\uD83Dé",
+            "end\uD83D"
+    };
+
+    private final TakaroFrameBuffers buffers = new TakaroFrameBuffers();
+
+    @Test
+    void matchesStringGetBytes() {
+        for (String sample : SAMPLES) {
+            TakaroFrameBuffers.Encoder encoder = buffers.acquire();
+            encoder.write(sample);
+            assertEncoded(sample, encoder.finish());
+            buffers.release(encoder);
+        }
+    }
+
+    @Test
+    void matchesStringGetBytesForEveryWriteMethod() {
+        for (String sample : SAMPLES) {
+            TakaroFrameBuffers.Encoder chars = buffers.acquire();
+            chars.write(sample.toCharArray(), 0, sample.length());
+            assertEncoded(sample, chars.finish());
+
+            TakaroFrameBuffers.Encoder single = buffers.acquire();
+            for (int i = 0; i < sample.length(); i++) {
+                single.write(sample.charAt(i));
+            }
+            assertEncoded(sample, single.finish());
+
+            TakaroFrameBuffers.Encoder appended = buffers.acquire();
+            appended.append(new StringBuilder(sample));
+            assertEncoded(sample, appended.finish());
+        }
+    }
+
+    @Test
+    void surrogatePairSplitAcrossWrites() {
+        String text = "ab😀cd🎉";
+        for (int chunk = 1; chunk <= text.length(); chunk++) {
+            TakaroFrameBuffers.Encoder encoder = buffers.acquire();
+            for (int i = 0; i < text.length(); i += chunk) {
+                encoder.write(text, i, Math.min(chunk, text.length() - i));
+            }
+            assertEncoded(text, encoder.finish());
+            buffers.release(encoder);
+        }
+
+        // The high surrogate ends one write and the low surrogate starts the next
+        TakaroFrameBuffers.Encoder encoder = buffers.acquire();
+        encoder.write("x\uD83D");
+        encoder.append('\uDE00');
+        encoder.write(new char[]{'y'}, 0, 1);
+        assertEncoded("x😀y", encoder.finish());
+    }
+
+    @Test
+    void randomTextInRandomChunks() {
+        Random random = new Random(42);
+        char[] alphabet = {'a', '"', 'é', '\u07FF', '\u0800', '€', '\uFFFF', '\uD83D', '\uDE00', '\uDBFF', '\uDC00'};
+
+        for (int round = 0; round < 500; round++) {
+            char[] text = new char[random.nextInt(200)];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+
+            TakaroFrameBuffers.Encoder encoder = buffers.acquire();
+            int offset = 0;
+            while (offset < text.length) {
+                int length = Math.min(1 + random.nextInt(8), text.length - offset);
+                encoder.write(text, offset, length);
+                offset += length;
+            }
+            assertEncoded(new String(text), encoder.finish());
+            buffers.release(encoder);
+        }
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 64 * 1024) {
+            text.append("€😀aé");
+        }
+
+        TakaroFrameBuffers.Encoder encoder = buffers.acquire();
+        // Grow one character at a time as well as in bulk
+        encoder.write(text.toString(), 0, 10);
+        for (int i = 10; i < 20_000; i++) {
+            encoder.write(text.charAt(i));
+        }
+        encoder.write(text.toString(), 20_000, text.length() - 20_000);
+        assertEncoded(text.toString(), encoder.finish());
+    }
+
+    @Test
+    void reusedEncoderStartsEmpty() {
+        TakaroFrameBuffers.Encoder encoder = buffers.acquire();
+        encoder.write("first message \uD83D");
+        encoder.finish();
+        buffers.release(encoder);
+
+        TakaroFrameBuffers.Encoder reused = buffers.acquire();
+        reused.write("\uDE00second");
+        assertEncoded("\uDE00second", reused.finish());
+    }
+
+    private static void assertEncoded(String expected, ByteBuffer actual) {
+        assertEquals(0, actual.position());
+        byte[] bytes = new byte[actual.remaining()];
+        actual.duplicate().get(bytes);
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytes, "Encoding of " + escape(expected));
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            escaped.append(c < 0x80 ? String.valueOf(c) : String.format("\\u%04x", (int) c));
+        }
+        return escaped.toString();
+    }
+}
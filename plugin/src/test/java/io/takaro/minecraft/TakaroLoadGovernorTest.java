@@ -0,0 +1,76 @@
+package io.takaro.minecraft;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lags the headless test server and checks how the load governor reduces forwarding.
+ */
+class TakaroLoadGovernorTest {
+
+    // Tick interval well above the default critical_mspt of 83ms
+    private static final long LAGGING_TICK_MILLIS = 120;
+    private static final long TIMEOUT_MILLIS = 15_000;
+
+    private TakaroTestServer server;
+    private TakaroTestServer.TestPlugin plugin;
+
+    @BeforeEach
+    void startPlugin() throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        config.put("takaro.governor.enabled", true);
+        config.put("takaro.governor.escalate_after", 1);
+        config.put("takaro.governor.recover_after", 1);
+        config.put("takaro.events.player-command", true);
+        config.put("takaro.events.player-respawn", true);
+
+        server = TakaroTestServer.get();
+        plugin = server.startPlugin(config);
+    }
+
+    @AfterEach
+    void stopPlugin() throws Exception {
+        server.stopPlugin();
+    }
+
+    @Test
+    void optionalEventsPauseWhileTheServerLags() throws InterruptedException {
+        TakaroLoadGovernor governor = plugin.getLoadGovernor();
+        TakaroEventModules modules = plugin.getEventModules();
+        assertTrue(modules.getRegistered().containsAll(List.of("player-command", "player-respawn")));
+
+        runUntilMode(TakaroLoadGovernor.Mode.CRITICAL, LAGGING_TICK_MILLIS);
+        // The modules are unregistered on the main thread, in the next tick
+        server.tick();
+        List<String> lagging = modules.getRegistered();
+        assertFalse(lagging.contains("player-command"), "player-command still forwarded: " + lagging);
+        assertFalse(lagging.contains("player-respawn"), "player-respawn still forwarded: " + lagging);
+        assertTrue(lagging.containsAll(List.of("player-connected", "chat-message", "player-death")),
+                "Core events not forwarded: " + lagging);
+        assertTrue(plugin.getConfig().getBoolean("takaro.events.player-command"));
+
+        runUntilMode(TakaroLoadGovernor.Mode.NORMAL, 1);
+        server.tick();
+        assertTrue(modules.getRegistered().containsAll(List.of("player-command", "player-respawn")),
+                "Optional events not resumed: " + modules.getRegistered());
+    }
+
+    private void runUntilMode(TakaroLoadGovernor.Mode mode, long tickMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (plugin.getLoadGovernor().getMode() != mode) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out waiting for load mode " + mode);
+            }
+            server.tick();
+            Thread.sleep(tickMillis);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package io.takaro.minecraft;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the plugin on the headless test server against a local Takaro backend
+ * and drives it with the load simulator, so the event handlers, the sender
+ * and the log forwarding run end to end without a Minecraft server.
+ */
+class TakaroLoadSimulatorTest {
+
+    private static final int SIMULATED_SECONDS = 10;
+    private static final int TICKS_PER_SECOND = 20;
+
+    private TakaroTestServer server;
+    private TakaroTestServer.TestPlugin plugin;
+    private TakaroTestBackend backend;
+
+    @BeforeEach
+    void startPlugin() throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        config.put("takaro.governor.enabled", false);
+        config.put("takaro.events.player-command", true);
+        config.put("takaro.simulation.enabled", true);
+        config.put("takaro.simulation.players", 20);
+        // Rates that are whole fractions of a tick, so the expected counts are exact
+        config.put("takaro.simulation.chat_per_second", 10.0);
+        config.put("takaro.simulation.joins_per_second", 2.5);
+        config.put("takaro.simulation.deaths_per_second", 2.5);
+        config.put("takaro.simulation.kills_per_second", 5.0);
+        config.put("takaro.simulation.commands_per_second", 5.0);
+        config.put("takaro.simulation.log_lines_per_second", 20.0);
+
+        server = TakaroTestServer.get();
+        plugin = server.startPlugin(config);
+        backend = server.getBackend();
+    }
+
+    @AfterEach
+    void stopPlugin() throws Exception {
+        server.stopPlugin();
+    }
+
+    @Test
+    void simulatedActivityReachesTakaro() {
+        TakaroLoadSimulator simulator = plugin.getLoadSimulator();
+        assertTrue(simulator.start(0));
+        server.runTicks(SIMULATED_SECONDS * TICKS_PER_SECOND);
+        simulator.stop();
+
+        int seconds = SIMULATED_SECONDS;
+        server.tickUntil(() -> backend.getEvents("chat-message").size() >= 10 * seconds
+                && backend.getEvents("player-command").size() >= 5 * seconds
+                && simulatedLogLines() >= 20 * seconds, "simulated events did not all arrive");
+
+        assertEquals(10 * seconds, backend.getEvents("chat-message").size());
+        assertEquals(5 * seconds / 2, backend.getEvents("player-connected").size());
+        assertEquals(5 * seconds / 2, backend.getEvents("player-disconnected").size());
+        assertEquals(5 * seconds / 2, backend.getEvents("player-death").size());
+        // PvP deaths also reach the entity-killed handler, like PlayerDeathEvent does on a server
+        assertEquals(5 * seconds, killed("ZOMBIE").size());
+        assertEquals(backend.getEvents("entity-killed").size(), killed("ZOMBIE").size() + killed("PLAYER").size());
+        assertEquals(5 * seconds, backend.getEvents("player-command").size());
+        assertEquals(20 * seconds, simulatedLogLines());
+        assertEquals(10 * seconds + 3 * (5 * seconds / 2) + 10 * seconds, simulator.getEventsSent());
+        assertEquals(20 * seconds, simulator.getLogLines());
+
+        // Logged with log4j's reusable messages, so each line must keep its own text after the next log call
+        Set<String> numbers = new HashSet<>();
+        for (JsonObject line : backend.getEvents("log")) {
+            if (line.get("logger").getAsString().equals("Simulation")) {
+                String msg = line.get("msg").getAsString();
+                assertTrue(msg.matches("log line \\d+ from SimPlayer\\d+"), "Unexpected log line " + msg);
+                numbers.add(msg.split(" ")[2]);
+            }
+        }
+        assertEquals(20 * seconds, numbers.size());
+
+        for (JsonObject command : backend.getEvents("player-command")) {
+            String line = command.get("command").getAsString();
+            assertTrue(line.equals("/spawn") || line.equals("/login <redacted>"), "Unexpected command " + line);
+        }
+        for (JsonObject kill : backend.getEvents("entity-killed")) {
+            assertTrue(kill.getAsJsonObject("player").get("name").getAsString().startsWith("SimPlayer"));
+        }
+
+        // The handlers ran on the main thread and were timed like on a real server
+        List<String> sections = plugin.getProfiler().getSections().stream().map(TakaroProfiler.Section::getName).toList();
+        for (String section : List.of("simulation", "chat", "player-connected", "player-death", "entity-killed")) {
+            assertTrue(sections.contains(section), "No profiler section " + section);
+        }
+    }
+
+    @Test
+    void joinFiredThroughTheServerIsForwarded() {
+        Player player = server.addPlayer("Alex");
+        server.callEvent(new PlayerJoinEvent(player, "Alex joined the game"));
+
+        server.tickUntil(() -> !backend.getEvents("player-connected").isEmpty(), "player-connected did not arrive");
+        JsonObject joined = backend.getEvents("player-connected").get(0).getAsJsonObject("player");
+        assertEquals("Alex", joined.get("name").getAsString());
+        assertEquals(player.getUniqueId().toString(), joined.get("gameId").getAsString());
+    }
+
+    @Test
+    void requestIsAnswered() {
+        server.addPlayer("Alex");
+        server.addPlayer("Steve");
+
+        JsonObject response = await(backend.request("getPlayers", null));
+        JsonArray players = response.getAsJsonArray("payload");
+        assertNotNull(players);
+        assertEquals(2, players.size());
+    }
+
+    private List<JsonObject> killed(String entityType) {
+        return backend.getEvents("entity-killed").stream()
+                .filter(kill -> kill.getAsJsonObject("entity").get("type").getAsString().equals(entityType))
+                .toList();
+    }
+
+    private long simulatedLogLines() {
+        return backend.getEvents("log").stream()
+                .filter(line -> line.has("logger") && line.get("logger").getAsString().equals("Simulation"))
+                .count();
+    }
+
+    private JsonObject await(CompletableFuture<JsonObject> response) {
+        server.tickUntil(response::isDone, "no response from the plugin");
+        return response.join();
+    }
+}
@@ -0,0 +1,102 @@
+package io.takaro.minecraft;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ReusableMessageFactory;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TakaroLogFilterTest {
+
+    private static final int WARMUP_EVENTS = 50_000;
+    private static final int MEASURED_EVENTS = 20_000;
+
+    // The capture step copies references, or the text of a reusable message, into preallocated slots, so it
+    // shouldn't allocate at all. The allowance only absorbs one-off JIT and TLAB bookkeeping spread over the
+    // measured events
+    private static final double MAX_BYTES_PER_EVENT = 8;
+
+    private TakaroLogFilter filter;
+
+    @AfterEach
+    void stopFilter() {
+        if (filter != null) {
+            filter.stop();
+        }
+    }
+
+    @Test
+    void captureOfImmutableMessageDoesNotAllocate() {
+        assertCaptureDoesNotAllocate(new SimpleMessage("Player joined the game"));
+    }
+
+    @Test
+    void captureOfReusableSimpleMessageDoesNotAllocate() {
+        // What a log call with a plain string produces while log4j thread-locals are on, the server default
+        assertCaptureDoesNotAllocate(ReusableMessageFactory.INSTANCE.newMessage((CharSequence) "Saving chunks for level 'world'"));
+    }
+
+    @Test
+    void captureOfReusableParameterizedMessageDoesNotAllocate() {
+        assertCaptureDoesNotAllocate(ReusableMessageFactory.INSTANCE.newMessage("{} joined the game ({} online)", "Steve", 12));
+    }
+
+    @Test
+    void forwardsLevelsAtOrAboveMinLevel() {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("takaro.logging.min_level", "INFO");
+        filter = new TakaroLogFilter(Logger.getLogger("TakaroLogFilterTest"), () -> config, () -> null);
+
+        assertTrue(filter.shouldForwardLevel(Level.ERROR));
+        assertTrue(filter.shouldForwardLevel(Level.WARN));
+        assertTrue(filter.shouldForwardLevel(Level.INFO));
+        assertFalse(filter.shouldForwardLevel(Level.DEBUG));
+        assertFalse(filter.shouldForwardLevel(Level.TRACE));
+
+        // The governor's floor only ever raises the minimum
+        filter.setLevelFloor(Level.WARN);
+        assertTrue(filter.shouldForwardLevel(Level.ERROR));
+        assertFalse(filter.shouldForwardLevel(Level.INFO));
+    }
+
+    private void assertCaptureDoesNotAllocate(Message message) {
+        com.sun.management.ThreadMXBean threads = TakaroTestAllocations.counter();
+
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("takaro.logging.min_level", "INFO");
+        config.set("takaro.logging.buffer_size", 100);
+        filter = new TakaroLogFilter(Logger.getLogger("TakaroLogFilterTest"), () -> config, () -> null);
+        filter.start();
+
+        LogEvent event = Log4jLogEvent.newBuilder()
+                .setLoggerName("net.minecraft.server.MinecraftServer")
+                .setLevel(Level.INFO)
+                .setMessage(message)
+                .setThreadName("Server thread")
+                .setTimeMillis(System.currentTimeMillis())
+                .build();
+
+        for (int i = 0; i < WARMUP_EVENTS; i++) {
+            filter.filter(event);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_EVENTS; i++) {
+            filter.filter(event);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        double perEvent = allocated / (double) MEASURED_EVENTS;
+        assertTrue(perEvent <= MAX_BYTES_PER_EVENT, String.format("Capturing a %s allocated %.1f bytes, budget is %.1f",
+                message.getClass().getSimpleName(), perEvent, MAX_BYTES_PER_EVENT));
+    }
+}
@@ -0,0 +1,103 @@
+package io.takaro.minecraft;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TakaroProfilerTest {
+
+    private static final int KB = 1024;
+
+    // Keeps allocations reachable so the JIT can't remove them
+    private static Object sink;
+
+    private TakaroProfiler profiler;
+
+    @BeforeEach
+    void createProfiler() {
+        TakaroTestAllocations.counter();
+
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("takaro.profiling.warn_threshold_ms", 0);
+        config.set("takaro.profiling.allocation_budget_kb", 256);
+        config.set("takaro.profiling.allocation_budgets.chat", 16);
+        profiler = new TakaroProfiler(Logger.getLogger("TakaroProfilerTest"), config);
+    }
+
+    @Test
+    void sectionOverItsBudgetIsCounted() {
+        profiler.wrap("chat", () -> sink = new byte[64 * KB]).run();
+        profiler.wrap("chat", () -> sink = new byte[KB]).run();
+
+        TakaroProfiler.Section chat = section("chat");
+        assertEquals(2, chat.getCount());
+        assertEquals(1, chat.getOverBudgetCount());
+        assertTrue(chat.getMaxBytes() >= 64 * KB);
+    }
+
+    @Test
+    void defaultBudgetAppliesToOtherSections() {
+        profiler.wrap("player-connected", () -> sink = new byte[64 * KB]).run();
+        assertEquals(0, section("player-connected").getOverBudgetCount());
+
+        profiler.wrap("player-connected", () -> sink = new byte[512 * KB]).run();
+        assertEquals(1, section("player-connected").getOverBudgetCount());
+    }
+
+    @Test
+    void nestedSectionKeepsTheOuterAllocationStart() {
+        // A kick from a request task fires PlayerQuitEvent, whose handler runs inside the task
+        long outer = profiler.begin();
+        sink = new byte[64 * KB];
+        profiler.wrap("player-disconnected", () -> sink = new byte[4 * KB]).run();
+        profiler.end("request", outer);
+
+        TakaroProfiler.Section request = section("request");
+        TakaroProfiler.Section disconnected = section("player-disconnected");
+        assertTrue(request.getMaxBytes() >= 68 * KB, "Outer section lost the allocation before the nested one");
+        assertTrue(disconnected.getMaxBytes() >= 4 * KB && disconnected.getMaxBytes() < 64 * KB,
+                "Nested section counted the outer section's allocation");
+    }
+
+    @Test
+    void nestedTimeCountsOnceTowardsTheTick() {
+        long outer = profiler.begin();
+        profiler.wrap("player-disconnected", TakaroProfilerTest::spin).run();
+        spin();
+        profiler.end("request", outer);
+        profiler.onTick();
+
+        assertEquals(section("request").getTotalNanos(), profiler.getTotalNanos());
+        assertEquals(profiler.getTotalNanos(), profiler.getTickCost().last());
+    }
+
+    @Test
+    void endWithoutBeginIsRecorded() {
+        profiler.end("stray", System.nanoTime());
+        profiler.wrap("chat", () -> sink = new byte[KB]).run();
+
+        assertEquals(0, section("stray").getMaxBytes());
+        assertEquals(0, section("chat").getOverBudgetCount());
+    }
+
+    private TakaroProfiler.Section section(String name) {
+        for (TakaroProfiler.Section section : profiler.getSections()) {
+            if (section.getName().equals(name)) {
+                return section;
+            }
+        }
+        throw new AssertionError("No section " + name);
+    }
+
+    private static void spin() {
+        long until = System.nanoTime() + 1_000_000;
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+    }
+}
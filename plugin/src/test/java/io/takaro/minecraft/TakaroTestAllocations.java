@@ -0,0 +1,25 @@
+package io.takaro.minecraft;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Per-thread allocation counter for tests that measure allocated bytes.
+ */
+final class TakaroTestAllocations {
+
+    private TakaroTestAllocations() {
+    }
+
+    /**
+     * @return The JVM's thread allocation counter. Skips the calling test if the JVM doesn't measure
+     *         per-thread allocation
+     */
+    static com.sun.management.ThreadMXBean counter() {
+        boolean supported = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled();
+        assumeTrue(supported, "JVM doesn't measure per-thread allocation");
+        return (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+}
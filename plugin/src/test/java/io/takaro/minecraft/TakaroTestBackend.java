@@ -0,0 +1,186 @@
+package io.takaro.minecraft;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the Takaro WebSocket backend.
+ *
+ * Accepts every identify, records the game events it receives by type and
+ * can send requests to the plugin and wait for their responses.
+ */
+final class TakaroTestBackend extends WebSocketServer {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final Map<String, List<JsonObject>> events = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<JsonObject>> pending = new ConcurrentHashMap<>();
+    private final Map<String, List<JsonObject>> responses = new ConcurrentHashMap<>();
+    private final AtomicInteger requestIds = new AtomicInteger();
+    private final AtomicInteger identified = new AtomicInteger();
+    private volatile WebSocket connection;
+
+    TakaroTestBackend() {
+        super(new InetSocketAddress("127.0.0.1", 0));
+        setReuseAddr(true);
+    }
+
+    /**
+     * Starts listening on a free port and waits until the server accepts connections.
+     *
+     * @return The URL the plugin should connect to
+     */
+    String startAndGetUrl() throws InterruptedException {
+        start();
+        if (!started.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Test backend did not start");
+        }
+        return "ws://127.0.0.1:" + getPort() + "/";
+    }
+
+    @Override
+    public void onStart() {
+        started.countDown();
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        connection = conn;
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        if (connection == conn) {
+            connection = null;
+        }
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        if (conn == null) {
+            started.countDown();
+        }
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String text) {
+        JsonObject message = JsonParser.parseString(text).getAsJsonObject();
+        String type = message.has("type") ? message.get("type").getAsString() : "";
+
+        switch (type) {
+            case "identify" -> {
+                identified.incrementAndGet();
+                JsonObject server = new JsonObject();
+                server.addProperty("id", "test-game-server");
+                JsonObject payload = new JsonObject();
+                payload.add("server", server);
+                JsonObject response = new JsonObject();
+                response.addProperty("type", "identifyResponse");
+                response.add("payload", payload);
+                conn.send(response.toString());
+            }
+            case "gameEvent" -> {
+                JsonObject payload = message.getAsJsonObject("payload");
+                events.computeIfAbsent(payload.get("type").getAsString(), key -> new CopyOnWriteArrayList<>())
+                        .add(payload.getAsJsonObject("data"));
+            }
+            case "response", "batchResponse" -> {
+                if (!message.has("requestId")) {
+                    return;
+                }
+                String requestId = message.get("requestId").getAsString();
+                responses.computeIfAbsent(requestId, key -> new CopyOnWriteArrayList<>()).add(message);
+                CompletableFuture<JsonObject> future = pending.remove(requestId);
+                if (future != null) {
+                    future.complete(message);
+                }
+            }
+            default -> {
+                // Heartbeats and anything else the test doesn't check
+            }
+        }
+    }
+
+    /**
+     * @return How many times the plugin identified
+     */
+    int getIdentifyCount() {
+        return identified.get();
+    }
+
+    /**
+     * @param type The game event type, e.g. "chat-message" or "log"
+     * @return The data of the events received with that type, oldest first
+     */
+    List<JsonObject> getEvents(String type) {
+        return events.getOrDefault(type, List.of());
+    }
+
+    /**
+     * @param requestId The requestId of a request or batch
+     * @return The response frames sent with that requestId on their own, oldest first. Responses
+     *         inside a batchResponse are not included
+     */
+    List<JsonObject> getResponses(String requestId) {
+        return responses.getOrDefault(requestId, List.of());
+    }
+
+    /**
+     * Sends a request to the plugin.
+     *
+     * @param action The request action
+     * @param args The request arguments, or null for none
+     * @return The response, completed when it arrives
+     */
+    CompletableFuture<JsonObject> request(String action, JsonObject args) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("action", action);
+        if (args != null) {
+            payload.addProperty("args", args.toString());
+        }
+        return send("request", payload);
+    }
+
+    /**
+     * Sends a batch of requests to the plugin.
+     *
+     * @param requests The entries, each with its own requestId, action and args
+     * @return The batchResponse, completed when it arrives
+     */
+    CompletableFuture<JsonObject> batchRequest(JsonArray requests) {
+        JsonObject payload = new JsonObject();
+        payload.add("requests", requests);
+        return send("batchRequest", payload);
+    }
+
+    private CompletableFuture<JsonObject> send(String type, JsonObject payload) {
+        WebSocket conn = connection;
+        if (conn == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Plugin is not connected"));
+        }
+
+        String requestId = "test-" + requestIds.incrementAndGet();
+        CompletableFuture<JsonObject> response = new CompletableFuture<>();
+        pending.put(requestId, response);
+
+        JsonObject message = new JsonObject();
+        message.addProperty("type", type);
+        message.addProperty("requestId", requestId);
+        message.add("payload", payload);
+        conn.send(message.toString());
+        return response;
+    }
+}
@@ -0,0 +1,590 @@
+package io.takaro.minecraft;
+
+import org.bukkit.BanList;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Headless stand-in for a Bukkit server, for running the plugin in tests.
+ *
+ * The Server, scheduler and plugin manager are proxies that implement what
+ * the plugin uses and return defaults for everything else. Events go through
+ * Bukkit's own HandlerList and RegisteredListener like on a real server. The
+ * thread that created the server is the main thread, and sync tasks only run
+ * when it calls {@link #tick()}, so a test decides how many ticks pass.
+ *
+ * Bukkit holds the server in a static field that can be set only once, so
+ * all tests share one instance through {@link #get()}.
+ */
+final class TakaroTestServer {
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = Map.of(
+            boolean.class, false, byte.class, (byte) 0, short.class, (short) 0, char.class, (char) 0,
+            int.class, 0, long.class, 0L, float.class, 0f, double.class, 0.0);
+
+    private static final long TICK_MILLIS = 50;
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(15);
+
+    private static TakaroTestServer instance;
+
+    private final Logger logger = Logger.getLogger("TakaroTestServer");
+    private final Server server;
+    private final BukkitScheduler scheduler;
+    private final PluginManager pluginManager;
+    private final World world;
+    private final BanList<?> banList;
+    private final List<Player> onlinePlayers = new CopyOnWriteArrayList<>();
+    private final Map<UUID, String> offlinePlayers = new ConcurrentHashMap<>();
+    private final Set<String> bannedNames = ConcurrentHashMap.newKeySet();
+    private final Map<String, PluginCommand> commands = new HashMap<>();
+    private final Queue<ScheduledTask> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+    private final ExecutorService asyncPool = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "TakaroTestServer-Async");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger taskIds = new AtomicInteger();
+    private volatile Thread mainThread;
+    private long currentTick;
+    private File worldContainer;
+    private Plugin plugin;
+    private TakaroTestBackend backend;
+    private Path dataFolder;
+
+    private TakaroTestServer() {
+        this.mainThread = Thread.currentThread();
+        this.world = stub(World.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> "world";
+            case "getEnvironment" -> World.Environment.NORMAL;
+            case "getUID" -> UUID.nameUUIDFromBytes("world".getBytes());
+            case "getSpawnLocation" -> new Location(proxy(World.class, proxy), 0, 64, 0);
+            case "getMinHeight" -> -64;
+            case "getMaxHeight" -> 320;
+            case "getEntities", "getLivingEntities", "getPlayers" -> new ArrayList<>();
+            default -> defaultValue(method);
+        });
+        this.scheduler = stub(BukkitScheduler.class, this::schedule);
+        this.banList = stub(BanList.class, (proxy, method, args) -> switch (method.getName()) {
+            case "addBan" -> {
+                bannedNames.add(args[0].toString().toLowerCase(Locale.ROOT));
+                yield null;
+            }
+            case "isBanned" -> bannedNames.contains(args[0].toString().toLowerCase(Locale.ROOT));
+            case "pardon" -> {
+                bannedNames.remove(args[0].toString().toLowerCase(Locale.ROOT));
+                yield null;
+            }
+            default -> defaultValue(method);
+        });
+        this.pluginManager = stub(PluginManager.class, this::managePlugins);
+        this.server = stub(Server.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> "TakaroTestServer";
+            case "getVersion", "getBukkitVersion" -> "1.21.5-R0.1-SNAPSHOT";
+            case "getLogger" -> logger;
+            case "getScheduler" -> scheduler;
+            case "getPluginManager" -> pluginManager;
+            case "getOnlinePlayers" -> onlinePlayers;
+            case "getWorlds" -> List.of(world);
+            case "getWorld" -> args[0] instanceof String name && name.equals("world")
+                    || args[0] instanceof UUID uuid && uuid.equals(world.getUID()) ? world : null;
+            case "getPlayer" -> findPlayer(args[0]);
+            case "getWorldContainer" -> worldContainer;
+            case "isPrimaryThread" -> Thread.currentThread() == mainThread;
+            case "getPluginCommand" -> pluginCommand((String) args[0]);
+            case "broadcastMessage" -> onlinePlayers.size();
+            case "getOfflinePlayer" -> offlinePlayer((UUID) args[0]);
+            case "getBanList" -> banList;
+            case "getBannedPlayers" -> new HashSet<>();
+            case "dispatchCommand" -> true;
+            default -> defaultValue(method);
+        });
+    }
+
+    /**
+     * @return The shared server, registered with Bukkit on first use
+     */
+    static synchronized TakaroTestServer get() {
+        if (instance == null) {
+            instance = new TakaroTestServer();
+            Bukkit.setServer(instance.server);
+        }
+        return instance;
+    }
+
+    Server getServer() {
+        return server;
+    }
+
+    World getWorld() {
+        return world;
+    }
+
+    /**
+     * Starts a local Takaro backend, enables the plugin connected to it with the calling thread
+     * as the main thread, and ticks until the plugin has authenticated. Undo with {@link #stopPlugin()}.
+     *
+     * @param overrides Config values set on top of the bundled config.yml and the backend connection, by path
+     * @return The enabled plugin
+     */
+    TestPlugin startPlugin(Map<String, Object> overrides) throws IOException, InterruptedException {
+        backend = new TakaroTestBackend();
+        String url = backend.startAndGetUrl();
+        dataFolder = Files.createTempDirectory("takaro-test");
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("takaro.websocket.url", url);
+        config.put("takaro.authentication.identity_token", "test-server");
+        config.put("takaro.authentication.registration_token", "test-token");
+        config.putAll(overrides);
+
+        TestPlugin takaro = enable(dataFolder.toFile(), config);
+        tickUntil(() -> takaro.getEventClient() != null && takaro.getEventClient().isAuthenticated(),
+                "plugin did not authenticate with the test backend");
+        return takaro;
+    }
+
+    /**
+     * Disables the plugin started by {@link #startPlugin}, stops its backend and deletes its data folder.
+     */
+    void stopPlugin() throws IOException, InterruptedException {
+        if (plugin instanceof TestPlugin takaro) {
+            disable(takaro);
+        }
+        if (backend != null) {
+            backend.stop(1000);
+            backend = null;
+        }
+        if (dataFolder != null) {
+            try (Stream<Path> files = Files.walk(dataFolder)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+            dataFolder = null;
+        }
+    }
+
+    /**
+     * @return The backend the plugin started by {@link #startPlugin} is connected to
+     */
+    TakaroTestBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Runs server ticks in real time until the condition holds, so main-thread work the plugin
+     * schedules keeps running while the test waits. Must be called on the main thread.
+     *
+     * @throws AssertionError If the condition doesn't hold within 15 seconds
+     */
+    void tickUntil(BooleanSupplier condition, String failure) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out: " + failure);
+            }
+            tick();
+            try {
+                Thread.sleep(TICK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError("Interrupted: " + failure, e);
+            }
+        }
+    }
+
+    /**
+     * Runs the given number of server ticks back to back.
+     */
+    void runTicks(int ticks) {
+        for (int tick = 0; tick < ticks; tick++) {
+            tick();
+        }
+    }
+
+    /**
+     * Loads and enables the plugin with the calling thread as the main thread.
+     *
+     * @param dataFolder Where the plugin keeps config.yml and its other files
+     * @param config Config values set before the plugin is enabled, by path
+     * @return The enabled plugin
+     */
+    TestPlugin enable(File dataFolder, Map<String, Object> config) {
+        mainThread = Thread.currentThread();
+        worldContainer = dataFolder;
+
+        @SuppressWarnings("deprecation")
+        JavaPluginLoader loader = new JavaPluginLoader(server);
+        PluginDescriptionFile description = new PluginDescriptionFile("TakaroMinecraft", "test", TakaroPlugin.class.getName());
+        TestPlugin takaro = new TestPlugin(loader, description, dataFolder, new File(dataFolder, "TakaroMinecraft.jar"));
+        plugin = takaro;
+
+        // Start from the bundled config.yml like a server the plugin ran on before, so values read
+        // with a default in code, such as the allocation budgets, are the shipped ones
+        takaro.saveDefaultConfig();
+        config.forEach(takaro.getConfig()::set);
+        takaro.enable();
+        return takaro;
+    }
+
+    /**
+     * Disables the plugin, unregisters its listeners and drops its tasks, like the server does.
+     */
+    void disable(TestPlugin takaro) {
+        takaro.disable();
+        HandlerList.unregisterAll(takaro);
+        pendingTasks.clear();
+        tasks.clear();
+        onlinePlayers.clear();
+        offlinePlayers.clear();
+        bannedNames.clear();
+        commands.clear();
+        plugin = null;
+    }
+
+    /**
+     * Runs one server tick: the sync tasks that are due, in the order they were scheduled.
+     * Must be called on the main thread.
+     */
+    void tick() {
+        currentTick++;
+        ScheduledTask added;
+        while ((added = pendingTasks.poll()) != null) {
+            tasks.add(added);
+        }
+
+        List<ScheduledTask> due = new ArrayList<>();
+        for (ScheduledTask task : tasks) {
+            if (!task.cancelled && task.nextRun <= currentTick) {
+                due.add(task);
+            }
+        }
+        for (ScheduledTask task : due) {
+            if (task.cancelled) {
+                continue;
+            }
+            try {
+                task.runnable.run();
+            } catch (RuntimeException e) {
+                throw new AssertionError("Task " + task.id + " threw on tick " + currentTick, e);
+            }
+            if (task.period > 0) {
+                task.nextRun = currentTick + task.period;
+            } else {
+                task.cancelled = true;
+            }
+        }
+        tasks.removeIf(task -> task.cancelled);
+    }
+
+    /**
+     * Fires an event through the registered listeners, like PluginManager.callEvent on a server.
+     */
+    void callEvent(Event event) {
+        pluginManager.callEvent(event);
+    }
+
+    /**
+     * Adds a stand-in player to the online players, standing at spawn.
+     */
+    Player addPlayer(String name) {
+        UUID uuid = UUID.nameUUIDFromBytes(("takaro-test:" + name).getBytes());
+        Location location = new Location(world, 0, 64, 0);
+        // An empty survival inventory: 36 storage slots, 4 armor slots and the off hand
+        PlayerInventory inventory = stub(PlayerInventory.class, (proxy, method, args) ->
+                method.getName().equals("getContents") ? new ItemStack[41] : defaultValue(method));
+        Player player = stub(Player.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> uuid;
+            case "getName", "getDisplayName", "getPlayerListName" -> name;
+            case "getType" -> EntityType.PLAYER;
+            case "getLocation" -> location.clone();
+            case "getWorld" -> world;
+            case "getPing" -> 42;
+            case "getServer" -> server;
+            case "getInventory" -> inventory;
+            case "teleport" -> true;
+            case "isOnline" -> onlinePlayers.contains(proxy(Player.class, proxy));
+            default -> defaultValue(method);
+        });
+        onlinePlayers.add(player);
+        return player;
+    }
+
+    /**
+     * Adds a player who has played on the server before but is offline now. The server knows
+     * their name, but the plugin's name cache only has it once it looks the player up.
+     *
+     * @return The player's UUID
+     */
+    UUID addOfflinePlayer(String name) {
+        UUID uuid = UUID.nameUUIDFromBytes(("takaro-test:" + name).getBytes());
+        offlinePlayers.put(uuid, name);
+        return uuid;
+    }
+
+    /**
+     * @return Whether the name is on the server's name ban list
+     */
+    boolean isBanned(String name) {
+        return bannedNames.contains(name.toLowerCase(Locale.ROOT));
+    }
+
+    private OfflinePlayer offlinePlayer(UUID uuid) {
+        // Like the server, a player it has never seen has no name
+        return stub(OfflinePlayer.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> uuid;
+            case "getName" -> offlinePlayers.get(uuid);
+            default -> defaultValue(method);
+        });
+    }
+
+    private Player findPlayer(Object key) {
+        for (Player player : onlinePlayers) {
+            if (key instanceof UUID uuid && uuid.equals(player.getUniqueId())
+                    || key instanceof String name && name.equalsIgnoreCase(player.getName())) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    private PluginCommand pluginCommand(String label) {
+        if (plugin == null) {
+            return null;
+        }
+        return commands.computeIfAbsent(label.substring(label.indexOf(':') + 1), name -> {
+            try {
+                Constructor<PluginCommand> constructor = PluginCommand.class.getDeclaredConstructor(String.class, Plugin.class);
+                constructor.setAccessible(true);
+                return constructor.newInstance(name, plugin);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create command " + name, e);
+            }
+        });
+    }
+
+    private Object schedule(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        switch (name) {
+            case "runTask", "runTaskLater", "runTaskTimer", "scheduleSyncDelayedTask", "scheduleSyncRepeatingTask":
+                if (!(args[1] instanceof Runnable runnable)) {
+                    throw new UnsupportedOperationException(name + " with a consumer is not supported");
+                }
+                long delay = args.length > 2 ? (long) args[2] : 0;
+                long period = args.length > 3 ? (long) args[3] : 0;
+                ScheduledTask task = new ScheduledTask(taskIds.incrementAndGet(), runnable,
+                        currentTick + Math.max(1, delay), period);
+                pendingTasks.add(task);
+                return method.getReturnType() == int.class ? task.id : task.asBukkitTask();
+            case "runTaskAsynchronously":
+                ScheduledTask async = new ScheduledTask(taskIds.incrementAndGet(), (Runnable) args[1], 0, 0);
+                asyncPool.execute(async.runnable);
+                return async.asBukkitTask();
+            case "cancelTask":
+                int id = (int) args[0];
+                pendingTasks.forEach(scheduled -> scheduled.cancelled |= scheduled.id == id);
+                tasks.forEach(scheduled -> scheduled.cancelled |= scheduled.id == id);
+                return null;
+            case "cancelTasks":
+                pendingTasks.forEach(scheduled -> scheduled.cancelled = true);
+                tasks.forEach(scheduled -> scheduled.cancelled = true);
+                return null;
+            case "isCurrentlyRunning", "isQueued":
+                return false;
+            default:
+                throw new UnsupportedOperationException("BukkitScheduler." + name + " is not supported by the test server");
+        }
+    }
+
+    private Object managePlugins(Object proxy, Method method, Object[] args) throws Exception {
+        switch (method.getName()) {
+            case "registerEvents":
+                registerAnnotated((Listener) args[0], (Plugin) args[1]);
+                return null;
+            case "registerEvent":
+                @SuppressWarnings("unchecked")
+                Class<? extends Event> eventClass = (Class<? extends Event>) args[0];
+                boolean ignoreCancelled = args.length > 5 && (boolean) args[5];
+                handlerList(eventClass).register(new RegisteredListener((Listener) args[1], (EventExecutor) args[3],
+                        (EventPriority) args[2], (Plugin) args[4], ignoreCancelled));
+                return null;
+            case "callEvent":
+                fire((Event) args[0]);
+                return null;
+            case "getPlugin":
+                return plugin != null && plugin.getName().equals(args[0]) ? plugin : null;
+            case "getPlugins":
+                return plugin != null ? new Plugin[]{plugin} : new Plugin[0];
+            case "isPluginEnabled":
+                return plugin != null && plugin.isEnabled();
+            default:
+                return defaultValue(method);
+        }
+    }
+
+    private void fire(Event event) {
+        if (event.isAsynchronous() == (Thread.currentThread() == mainThread)) {
+            throw new IllegalStateException(event.getEventName() + (event.isAsynchronous()
+                    ? " may only be triggered asynchronously." : " may only be triggered synchronously."));
+        }
+        for (RegisteredListener listener : event.getHandlers().getRegisteredListeners()) {
+            if (!listener.getPlugin().isEnabled()) {
+                continue;
+            }
+            try {
+                listener.callEvent(event);
+            } catch (EventException e) {
+                throw new AssertionError("Listener failed on " + event.getEventName(), e.getCause());
+            }
+        }
+    }
+
+    private void registerAnnotated(Listener listener, Plugin owner) throws ReflectiveOperationException {
+        for (Method method : listener.getClass().getMethods()) {
+            EventHandler annotation = method.getAnnotation(EventHandler.class);
+            if (annotation == null || method.getParameterCount() != 1
+                    || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+            Class<? extends Event> eventClass = method.getParameterTypes()[0].asSubclass(Event.class);
+            EventExecutor executor = (target, event) -> {
+                if (!eventClass.isInstance(event)) {
+                    return;
+                }
+                try {
+                    method.invoke(target, event);
+                } catch (InvocationTargetException e) {
+                    throw new EventException(e.getCause());
+                } catch (IllegalAccessException e) {
+                    throw new EventException(e);
+                }
+            };
+            handlerList(eventClass).register(new RegisteredListener(listener, executor, annotation.priority(),
+                    owner, annotation.ignoreCancelled()));
+        }
+    }
+
+    private static HandlerList handlerList(Class<? extends Event> eventClass) throws ReflectiveOperationException {
+        return (HandlerList) eventClass.getMethod("getHandlerList").invoke(null);
+    }
+
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                    default -> handler.invoke(proxy, method, args);
+                }));
+    }
+
+    private static <T> T proxy(Class<T> type, Object proxy) {
+        return type.cast(proxy);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (Collection.class.isAssignableFrom(type)) {
+            return List.class.isAssignableFrom(type) || type == Collection.class ? new ArrayList<>() : null;
+        }
+        return PRIMITIVE_DEFAULTS.get(type);
+    }
+
+    /**
+     * The plugin with access to the enable and disable steps the server normally performs.
+     */
+    static final class TestPlugin extends TakaroPlugin {
+        private TestPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+            super(loader, description, dataFolder, file);
+        }
+
+        void enable() {
+            setEnabled(true);
+        }
+
+        void disable() {
+            setEnabled(false);
+        }
+    }
+
+    private final class ScheduledTask {
+        private final int id;
+        private final Runnable runnable;
+        private final long period;
+        private long nextRun;
+        private volatile boolean cancelled;
+
+        private ScheduledTask(int id, Runnable runnable, long nextRun, long period) {
+            this.id = id;
+            this.runnable = runnable;
+            this.nextRun = nextRun;
+            this.period = period;
+        }
+
+        private BukkitTask asBukkitTask() {
+            return stub(BukkitTask.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getTaskId" -> id;
+                case "getOwner" -> plugin;
+                case "isSync" -> nextRun > 0;
+                case "isCancelled" -> cancelled;
+                case "cancel" -> {
+                    cancelled = true;
+                    yield null;
+                }
+                default -> defaultValue(method);
+            });
+        }
+    }
+}
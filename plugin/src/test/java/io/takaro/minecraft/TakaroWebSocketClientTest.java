@@ -0,0 +1,93 @@
+package io.takaro.minecraft;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends requests to the plugin on the headless test server and checks what it answers.
+ */
+class TakaroWebSocketClientTest {
+
+    private static final int SETTLE_TICKS = 20;
+
+    private TakaroTestServer server;
+    private TakaroTestServer.TestPlugin plugin;
+    private TakaroTestBackend backend;
+
+    @BeforeEach
+    void startPlugin() throws Exception {
+        server = TakaroTestServer.get();
+        plugin = server.startPlugin(new HashMap<>());
+        backend = server.getBackend();
+    }
+
+    @AfterEach
+    void stopPlugin() throws Exception {
+        server.stopPlugin();
+    }
+
+    @Test
+    void banOfUncachedPlayerInBatchIsAnsweredInTheBatch() throws InterruptedException {
+        UUID notch = server.addOfflinePlayer("Notch");
+        UUID unknown = UUID.nameUUIDFromBytes("never-played".getBytes());
+        // Offline and not in usercache.json, so the plugin has to look the names up
+        assertNull(plugin.getPlayerNameCache().getName(notch));
+
+        JsonObject player = new JsonObject();
+        player.addProperty("gameId", notch.toString());
+        JsonObject banArgs = new JsonObject();
+        banArgs.add("player", player);
+        banArgs.addProperty("reason", "Griefing");
+        JsonObject unbanArgs = new JsonObject();
+        unbanArgs.addProperty("gameId", unknown.toString());
+
+        JsonArray requests = new JsonArray();
+        requests.add(batchEntry("ban-1", "banPlayer", banArgs));
+        requests.add(batchEntry("unban-1", "unbanPlayer", unbanArgs));
+        JsonObject batch = await(backend.batchRequest(requests));
+
+        JsonArray responses = batch.getAsJsonObject("payload").getAsJsonArray("responses");
+        assertEquals(2, responses.size());
+        JsonObject ban = responses.get(0).getAsJsonObject();
+        assertEquals("ban-1", ban.get("requestId").getAsString());
+        assertFalse(ban.has("error"), "Ban failed: " + ban);
+        assertTrue(server.isBanned("Notch"));
+        JsonObject unban = responses.get(1).getAsJsonObject();
+        assertEquals("unban-1", unban.get("requestId").getAsString());
+        assertEquals("Player not found", unban.get("error").getAsString());
+
+        // Nothing answers the entries again on its own after the batch was sent
+        for (int tick = 0; tick < SETTLE_TICKS; tick++) {
+            server.tick();
+            Thread.sleep(50);
+        }
+        assertTrue(backend.getResponses("ban-1").isEmpty());
+        assertTrue(backend.getResponses("unban-1").isEmpty());
+        assertEquals("Notch", plugin.getPlayerNameCache().getName(notch));
+    }
+
+    private static JsonObject batchEntry(String requestId, String action, JsonObject args) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("requestId", requestId);
+        entry.addProperty("action", action);
+        entry.add("args", args);
+        return entry;
+    }
+
+    private JsonObject await(CompletableFuture<JsonObject> response) {
+        server.tickUntil(response::isDone, "no response from the plugin");
+        return response.join();
+    }
+}